@@ -0,0 +1,74 @@
+package org.example.spi;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 异步CaffeineCache，基于Caffeine AsyncCache缓存加载中的future，并发调用方共享同一次在途加载而不阻塞线程。
+ * 默认实现基于同步接口，未使用AsyncCache的缓存也可按异步方式调用，但不共享在途加载。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public interface AsyncCaffeineCache extends CaffeineCache {
+
+    /**
+     * 获取异步缓存对象
+     *
+     * @return 异步缓存，未使用AsyncCache时为null
+     */
+    default AsyncCache getAsyncCache() {
+        return null;
+    }
+
+    /**
+     * 根据单个Key异步获取缓存值，加载中的值在加载完成时返回
+     *
+     * @param id 缓存Key
+     * @param <K> key类型
+     * @return 缓存值，不存在时为null
+     */
+    default <K> CompletableFuture<Object> getValueAsync(K id) {
+        return CompletableFuture.completedFuture(getValue(id));
+    }
+
+    /**
+     * 批量异步获取缓存值
+     *
+     * @param ids 缓存Key
+     * @param <K> key类型
+     * @return 缓存key - 缓存值，不含不存在或加载失败的key
+     */
+    default <K> CompletableFuture<Map<K, Object>> getValuesAsync(Collection<K> ids) {
+        Map<K, Object> values = getValues(ids);
+        return CompletableFuture.completedFuture(null == values ? new HashMap<>(4) : values);
+    }
+
+    /**
+     * 异步获取缓存值，不存在时调用loader加载并缓存，加载完成前同一key的调用方共享同一future。
+     * 加载结果为null或加载失败时不缓存。
+     *
+     * @param id 缓存Key
+     * @param loader 加载逻辑
+     * @param <K> key类型
+     * @return 缓存值
+     */
+    default <K> CompletableFuture<Object> getValueAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        Object value = getValue(id);
+        if (null != value) {
+            return CompletableFuture.completedFuture(value);
+        }
+        long version = getVersion();
+        return loader.apply(id).thenApply(result -> {
+            if (null != result) {
+                addValue(id, result, version);
+            }
+            return result;
+        });
+    }
+}
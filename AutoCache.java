@@ -32,9 +32,47 @@ public @interface AutoCache {
      */
     int keyIndex() default -1;
 
+    /**
+     * 多个key参数的位置，非空时按顺序组合为{@link org.example.core.CompositeKey}作为缓存key，忽略keyIndex。
+     * 各参数需不可变并正确实现equals/hashCode，List/Set/Map/数组参数组合时复制一份
+     */
+    int[] keyIndexes() default {};
+
     /**
      * 方法返回结果类型
      */
     Class resultClass();
+
+    /**
+     * 是否合并并发的缓存未命中加载，开启后同一缓存key同时只有一个请求执行原方法
+     */
+    boolean coalesce() default false;
+
+    /**
+     * 合并加载时等待在途结果的最长时间(毫秒)，超时后自行执行原方法
+     */
+    int coalesceTimeout() default CaffeineCacheConstants.DEFAULT_COALESCE_TIMEOUT;
+
+    /**
+     * 集合key是否按部分命中批量加载，开启后只对未命中的key执行原方法，并将结果按key拆分写入缓存
+     */
+    boolean batchLoad() default false;
+
+    /**
+     * 批量加载时结果元素中对应缓存key的属性名，方法返回Map时可不填，直接使用Map的key
+     */
+    String resultKeyField() default "";
+
+    /**
+     * 写入多少秒后命中时在后台重新执行原方法刷新缓存，刷新完成前仍返回旧值；-1-使用缓存配置，0-不刷新。
+     * 刷新在后台线程重放原方法，不带调用方的事务、安全上下文和请求作用域，依赖这些上下文的方法应设为0
+     */
+    int refreshAfterWrite() default -1;
+
+    /**
+     * 是否缓存原方法返回的null及空集合/空Map，开启后在空值失效前重复请求不再执行原方法；
+     * 空值失效时间和容量取缓存配置，方法返回集合/Map时命中空值返回可修改的空集合/空Map
+     */
+    boolean cacheNull() default false;
     
 }
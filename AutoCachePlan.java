@@ -0,0 +1,578 @@
+package org.example.core;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.CaffeineCacheManager;
+import org.example.spi.AutoCache;
+import org.example.spi.CaffeineCache;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AutoCache方法调用计划，每个方法只解析一次，命中路径上不再做反射和Bean查找
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+@Getter
+class AutoCachePlan {
+
+    /**
+     * 方法不可缓存时的占位计划
+     */
+    static final AutoCachePlan NOT_CACHEABLE = new AutoCachePlan();
+
+    /**
+     * 缓存管理器
+     */
+    private final CaffeineCacheManager cacheManager;
+    /**
+     * 缓存名
+     */
+    private final String cacheName;
+    /**
+     * key提取器
+     */
+    private final KeyExtractor keyExtractor;
+    /**
+     * 结果处理策略
+     */
+    private final ResultStrategy resultStrategy;
+    /**
+     * 方法返回结果类型
+     */
+    private final Class resultClass;
+    /**
+     * 集合结果构造器，仅COLLECTION/DYNAMIC策略使用
+     */
+    private final Constructor resultConstructor;
+    /**
+     * key在方法参数中位置
+     */
+    private final int keyIndex;
+    /**
+     * 是否合并并发加载
+     */
+    private final boolean coalesce;
+    /**
+     * 合并加载等待时间(毫秒)
+     */
+    private final int coalesceTimeout;
+    /**
+     * 是否按部分命中批量加载
+     */
+    private final boolean batchLoad;
+    /**
+     * 批量加载时结果元素中对应缓存key的属性名
+     */
+    private final String resultKeyField;
+    /**
+     * 批量加载时未命中key集合的构造器
+     */
+    private final Constructor keyCollectionConstructor;
+    /**
+     * 结果元素类型 - key属性读取器
+     */
+    private final ConcurrentMap<Class<?>, ResultKeyReader> resultKeyReaders = new ConcurrentHashMap<>();
+    /**
+     * 异步刷新时间(秒)，-1-使用缓存配置
+     */
+    private final int refreshAfterWrite;
+    /**
+     * 是否缓存null及空集合结果
+     */
+    private final boolean cacheNull;
+    /**
+     * 方法返回类型
+     */
+    private final Class<?> returnType;
+    /**
+     * 命中空值缓存时能否按返回类型重建空集合/空Map
+     */
+    private final boolean emptyRebuildable;
+    /**
+     * 方法是否返回CompletableFuture/CompletionStage，是则缓存加载中的future
+     */
+    private final boolean asyncResult;
+    /**
+     * 原方法加载耗时
+     */
+    private final LatencyHistogram loadLatency;
+    /**
+     * 缓存实例，管理器中尚未注册时延迟解析
+     */
+    private volatile CaffeineCache cache;
+
+    private AutoCachePlan() {
+        this.cacheManager = null;
+        this.cacheName = null;
+        this.keyExtractor = null;
+        this.resultStrategy = null;
+        this.resultClass = null;
+        this.resultConstructor = null;
+        this.keyIndex = -1;
+        this.coalesce = false;
+        this.coalesceTimeout = 0;
+        this.batchLoad = false;
+        this.resultKeyField = null;
+        this.keyCollectionConstructor = null;
+        this.refreshAfterWrite = 0;
+        this.cacheNull = false;
+        this.returnType = null;
+        this.emptyRebuildable = false;
+        this.asyncResult = false;
+        this.loadLatency = null;
+    }
+
+    AutoCachePlan(CaffeineCacheManager cacheManager, AutoCache autoCache, KeyExtractor keyExtractor,
+                  ResultStrategy resultStrategy, Constructor resultConstructor, boolean batchLoad, Constructor keyCollectionConstructor,
+                  boolean asyncResult, Class<?> returnType) {
+        this.cacheManager = cacheManager;
+        this.cacheName = autoCache.cacheName();
+        this.keyExtractor = keyExtractor;
+        this.resultStrategy = resultStrategy;
+        this.resultClass = autoCache.resultClass();
+        this.resultConstructor = resultConstructor;
+        this.keyIndex = autoCache.keyIndex();
+        this.coalesce = autoCache.coalesce();
+        this.coalesceTimeout = autoCache.coalesceTimeout();
+        this.batchLoad = batchLoad;
+        this.resultKeyField = autoCache.resultKeyField();
+        this.keyCollectionConstructor = keyCollectionConstructor;
+        this.refreshAfterWrite = autoCache.refreshAfterWrite();
+        this.cacheNull = autoCache.cacheNull();
+        this.returnType = returnType;
+        this.emptyRebuildable = null != emptyResult();
+        this.asyncResult = asyncResult;
+        this.loadLatency = CacheLatencyMonitor.histogram(this.cacheName, CacheLatencyMonitor.OP_LOAD);
+        this.cache = prepare(cacheManager.getCache(cacheName));
+    }
+
+    /**
+     * 是否可缓存
+     */
+    boolean isCacheable() {
+        return this != NOT_CACHEABLE;
+    }
+
+    /**
+     * 获取缓存实例
+     *
+     * @return 缓存实例，null-缓存尚未注册
+     */
+    CaffeineCache resolveCache() {
+        CaffeineCache resolved = this.cache;
+        if (null == resolved) {
+            resolved = prepare(this.cacheManager.getCache(this.cacheName));
+            this.cache = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * 按注解配置初始化缓存实例
+     *
+     * @param resolved 缓存实例
+     * @return 缓存实例
+     */
+    private CaffeineCache prepare(CaffeineCache resolved) {
+        if (null != resolved && this.cacheNull) {
+            resolved.enableAbsentCache();
+        }
+        return resolved;
+    }
+
+    /**
+     * 获取生效的异步刷新时间，注解未配置时使用缓存配置
+     *
+     * @param cache 缓存
+     * @return 刷新时间(秒)，0-不刷新
+     */
+    int effectiveRefreshAfterWrite(CaffeineCache cache) {
+        return this.refreshAfterWrite >= 0 ? this.refreshAfterWrite : cache.getRefreshAfterWrite();
+    }
+
+    /**
+     * 结果是否按空值缓存，null视为空值；空集合/空Map只在命中空值缓存时能按返回类型重建时视为空值，
+     * 如返回TreeSet、ConcurrentMap的方法，空结果按实际值缓存，命中时不会返回null
+     *
+     * @param result 方法结果
+     * @return true-空值
+     */
+    boolean isAbsentResult(Object result) {
+        if (null == result) {
+            return true;
+        }
+        return this.emptyRebuildable && ((result instanceof Collection && ((Collection) result).isEmpty())
+                || (result instanceof Map && ((Map) result).isEmpty()));
+    }
+
+    /**
+     * 命中空值缓存时的返回值，方法返回集合/Map时为新建的空集合/空Map，否则为null
+     *
+     * @return 返回值
+     */
+    Object emptyResult() {
+        if (null == this.returnType) {
+            return null;
+        }
+        if (Collection.class.isAssignableFrom(this.returnType)) {
+            if (this.returnType.isAssignableFrom(ArrayList.class)) {
+                return new ArrayList<>();
+            }
+            if (this.returnType.isAssignableFrom(LinkedHashSet.class)) {
+                return new LinkedHashSet<>();
+            }
+        }
+        if (Map.class.isAssignableFrom(this.returnType) && this.returnType.isAssignableFrom(LinkedHashMap.class)) {
+            return new LinkedHashMap<>();
+        }
+        return null;
+    }
+
+    /**
+     * 根据调用参数提取缓存key
+     *
+     * @param args 方法参数
+     * @return 缓存key
+     */
+    Object extractKey(Object[] args) {
+        return this.keyExtractor.extract(args);
+    }
+
+    /**
+     * 根据key的实际类型确定本次调用的结果策略
+     *
+     * @param key 缓存key
+     * @return 结果策略
+     */
+    ResultStrategy strategyFor(Object key) {
+        if (ResultStrategy.DYNAMIC != this.resultStrategy) {
+            return this.resultStrategy;
+        }
+        if (key instanceof Collection) {
+            return null == this.resultConstructor ? ResultStrategy.NONE : ResultStrategy.COLLECTION;
+        }
+        if (key instanceof Map) {
+            return ResultStrategy.NONE;
+        }
+        return ResultStrategy.SINGLE;
+    }
+
+    /**
+     * 创建空的方法结果容器
+     *
+     * @return 结果容器
+     * @throws ReflectiveOperationException 实例化异常
+     */
+    Object newResult() throws ReflectiveOperationException {
+        return this.resultConstructor.newInstance();
+    }
+
+    /**
+     * 用未命中的key构造新的方法参数
+     *
+     * @param args 原方法参数
+     * @param missIds 未命中的key
+     * @return 新的方法参数
+     * @throws ReflectiveOperationException 实例化异常
+     */
+    @SuppressWarnings("unchecked")
+    Object[] withMissIds(Object[] args, Collection<Object> missIds) throws ReflectiveOperationException {
+        Collection<Object> keys = (Collection<Object>) this.keyCollectionConstructor.newInstance();
+        keys.addAll(missIds);
+        Object[] missArgs = args.clone();
+        missArgs[this.keyIndex] = keys;
+        return missArgs;
+    }
+
+    /**
+     * 将批量方法结果拆分为 缓存key - 缓存值
+     *
+     * @param result 方法结果
+     * @return 缓存key - 缓存值，无法拆分时返回null
+     */
+    @SuppressWarnings("unchecked")
+    Map<Object, Object> splitResult(Object result) {
+        if (result instanceof Map) {
+            return (Map<Object, Object>) result;
+        }
+        if (!(result instanceof Collection)) {
+            return null;
+        }
+        Collection<Object> elements = (Collection<Object>) result;
+        Map<Object, Object> split = new LinkedHashMap<>(Math.max(16, (int) (elements.size() / 0.75f) + 1));
+        for (Object element : elements) {
+            if (null == element) {
+                continue;
+            }
+            ResultKeyReader reader = this.resultKeyReaders.computeIfAbsent(element.getClass(), this::buildResultKeyReader);
+            if (ResultKeyReader.NONE == reader) {
+                return null;
+            }
+            try {
+                Object elementKey = reader.read(element);
+                if (null != elementKey) {
+                    split.put(elementKey, element);
+                }
+            } catch (ReflectiveOperationException e) {
+                log.error("读取批量结果key异常, cacheName:{}, field:{}", this.cacheName, this.resultKeyField, e);
+                return null;
+            }
+        }
+        return split;
+    }
+
+    /**
+     * 解析结果元素的key属性读取器，优先getter，其次字段
+     */
+    private ResultKeyReader buildResultKeyReader(Class<?> elementClass) {
+        String field = this.resultKeyField;
+        if (null == field || field.isEmpty()) {
+            return ResultKeyReader.NONE;
+        }
+        String suffix = Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        for (String prefix : new String[] { "get", "is" }) {
+            try {
+                Method getter = elementClass.getMethod(prefix + suffix);
+                return getter::invoke;
+            } catch (NoSuchMethodException ignore) {
+                // 继续尝试
+            }
+        }
+        for (Class<?> type = elementClass; null != type && Object.class != type; type = type.getSuperclass()) {
+            try {
+                Field declaredField = type.getDeclaredField(field);
+                declaredField.setAccessible(true);
+                return declaredField::get;
+            } catch (NoSuchFieldException ignore) {
+                // 继续查找父类
+            }
+        }
+        log.warn("批量结果缺少key属性, cacheName:{}, class:{}, field:{}", this.cacheName, elementClass.getName(), field);
+        return ResultKeyReader.NONE;
+    }
+
+    /**
+     * 根据方法和注解构建调用计划
+     *
+     * @param method 方法
+     * @param cacheManager 缓存管理器
+     * @param autoCache 缓存注解
+     * @return 调用计划
+     */
+    static AutoCachePlan build(Method method, CaffeineCacheManager cacheManager, AutoCache autoCache) {
+        int keyIndex = autoCache.keyIndex();
+        Class resultClass = autoCache.resultClass();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Class<?> returnType = method.getReturnType();
+        boolean asyncResult = CompletionStage.class.isAssignableFrom(returnType) && returnType.isAssignableFrom(CompletableFuture.class);
+        if (autoCache.keyIndexes().length > 0) {
+            return buildComposite(method, cacheManager, autoCache, asyncResult);
+        }
+        if (keyIndex < 0 || keyIndex >= parameterTypes.length) {
+            log.warn("AutoCache keyIndex越界, method:{}, keyIndex:{}", method, keyIndex);
+            return NOT_CACHEABLE;
+        }
+        Class<?> keyType = parameterTypes[keyIndex];
+        ResultStrategy strategy;
+        if (Collection.class.isAssignableFrom(keyType)) {
+            strategy = ResultStrategy.COLLECTION;
+        } else if (Map.class.isAssignableFrom(keyType)) {
+            strategy = ResultStrategy.NONE;
+        } else if (mayHoldContainer(keyType)) {
+            strategy = ResultStrategy.DYNAMIC;
+        } else {
+            strategy = ResultStrategy.SINGLE;
+        }
+        boolean batchLoad = autoCache.batchLoad() && ResultStrategy.COLLECTION == strategy && !asyncResult;
+        Constructor keyCollectionConstructor = null;
+        if (batchLoad) {
+            keyCollectionConstructor = getContainerConstructor(keyType);
+            boolean splittable = Map.class.isAssignableFrom(resultClass) || !"".equals(autoCache.resultKeyField());
+            if (null == keyCollectionConstructor || !splittable) {
+                log.warn("AutoCache批量加载配置无效, 回退为整体缓存, method:{}", method);
+                batchLoad = false;
+            }
+        }
+        Constructor constructor = null;
+        if (ResultStrategy.COLLECTION == strategy || ResultStrategy.DYNAMIC == strategy) {
+            if (batchLoad || Collection.class.isAssignableFrom(resultClass)) {
+                constructor = getContainerConstructor(resultClass);
+            }
+            if (null == constructor && ResultStrategy.COLLECTION == strategy) {
+                strategy = ResultStrategy.NONE;
+                batchLoad = false;
+            }
+        }
+        KeyExtractor keyExtractor = args -> keyIndex < args.length ? args[keyIndex] : null;
+        return new AutoCachePlan(cacheManager, autoCache, keyExtractor, strategy, constructor, batchLoad, keyCollectionConstructor,
+                asyncResult, returnType);
+    }
+
+    /**
+     * 构建多参数组合key的调用计划，组合key按单个key缓存
+     *
+     * @param method 方法
+     * @param cacheManager 缓存管理器
+     * @param autoCache 缓存注解
+     * @param asyncResult 方法是否返回future
+     * @return 调用计划
+     */
+    private static AutoCachePlan buildComposite(Method method, CaffeineCacheManager cacheManager, AutoCache autoCache, boolean asyncResult) {
+        int[] keyIndexes = autoCache.keyIndexes().clone();
+        int parameterCount = method.getParameterCount();
+        if (autoCache.keyIndex() >= 0) {
+            log.warn("AutoCache同时配置keyIndex和keyIndexes, 忽略keyIndex, method:{}, keyIndex:{}", method, autoCache.keyIndex());
+        }
+        for (int index : keyIndexes) {
+            if (index < 0 || index >= parameterCount) {
+                log.warn("AutoCache keyIndexes越界, method:{}, keyIndex:{}", method, index);
+                return NOT_CACHEABLE;
+            }
+        }
+        KeyExtractor keyExtractor = args -> {
+            Object[] parts = new Object[keyIndexes.length];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                parts[i] = copyMutable(args[keyIndexes[i]]);
+            }
+            return CompositeKey.ofOwned(parts);
+        };
+        return new AutoCachePlan(cacheManager, autoCache, keyExtractor, ResultStrategy.SINGLE, null, false, null, asyncResult,
+                method.getReturnType());
+    }
+
+    /**
+     * 复制可变的集合/Map/数组类型的key部分，避免调用方之后修改参数改变已缓存key的equals/hashCode
+     *
+     * @param part key部分
+     * @return 不与调用方共享的key部分
+     */
+    private static Object copyMutable(Object part) {
+        if (part instanceof List) {
+            return new ArrayList<>((List<?>) part);
+        }
+        if (part instanceof Set) {
+            return new HashSet<>((Set<?>) part);
+        }
+        if (part instanceof Map) {
+            return new HashMap<>((Map<?, ?>) part);
+        }
+        if (part instanceof Object[]) {
+            return ((Object[]) part).clone();
+        }
+        return part;
+    }
+
+    /**
+     * 参数声明类型是否可能在运行时传入集合/Map，如Object、Iterable、Serializable及泛型参数擦除后的接口上界，是则按运行时类型判断
+     */
+    private static boolean mayHoldContainer(Class<?> keyType) {
+        return keyType.isInterface() || keyType.isAssignableFrom(AbstractCollection.class) || keyType.isAssignableFrom(AbstractMap.class);
+    }
+
+    /**
+     * 获取集合/Map容器的无参构造器，接口类型使用对应的默认实现
+     */
+    private static Constructor getContainerConstructor(Class<?> containerClass) {
+        if (null == containerClass) {
+            return null;
+        }
+        Class<?> concreteClass = containerClass;
+        if (containerClass.isInterface() || Modifier.isAbstract(containerClass.getModifiers())) {
+            if (containerClass.isAssignableFrom(ArrayList.class)) {
+                concreteClass = ArrayList.class;
+            } else if (containerClass.isAssignableFrom(LinkedHashSet.class)) {
+                concreteClass = LinkedHashSet.class;
+            } else if (containerClass.isAssignableFrom(LinkedHashMap.class)) {
+                concreteClass = LinkedHashMap.class;
+            } else {
+                return null;
+            }
+        }
+        if (!Collection.class.isAssignableFrom(concreteClass) && !Map.class.isAssignableFrom(concreteClass)) {
+            return null;
+        }
+        try {
+            return concreteClass.getConstructor();
+        } catch (NoSuchMethodException e) {
+            log.warn("AutoCache容器类型缺少无参构造器, class:{}", concreteClass.getName());
+            return null;
+        }
+    }
+
+    /**
+     * 结果元素key读取器
+     */
+    @FunctionalInterface
+    interface ResultKeyReader {
+        /**
+         * 无可用读取器时的占位
+         */
+        ResultKeyReader NONE = element -> null;
+
+        /**
+         * 读取结果元素的key
+         *
+         * @param element 结果元素
+         * @return 缓存key
+         * @throws ReflectiveOperationException 反射异常
+         */
+        Object read(Object element) throws ReflectiveOperationException;
+    }
+
+    /**
+     * 缓存key提取器
+     */
+    @FunctionalInterface
+    interface KeyExtractor {
+        /**
+         * 从方法参数中提取缓存key
+         *
+         * @param args 方法参数
+         * @return 缓存key
+         */
+        Object extract(Object[] args);
+    }
+
+    /**
+     * 结果处理策略
+     */
+    enum ResultStrategy {
+        /**
+         * 单个key，直接读写缓存
+         */
+        SINGLE,
+        /**
+         * 集合key，按元素读取缓存
+         */
+        COLLECTION,
+        /**
+         * 不处理缓存
+         */
+        NONE,
+        /**
+         * 参数声明类型可能接收集合/Map，按运行时类型判断
+         */
+        DYNAMIC
+    }
+}
@@ -1,18 +1,25 @@
 package org.example.core;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import org.example.spi.AsyncCaffeineCache;
+import org.example.spi.CacheKeyType;
 import org.example.spi.CaffeineCache;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
- * 基础装饰器
+ * 基础装饰器，被装饰缓存为{@link AsyncCaffeineCache}时转发异步接口，否则使用同步接口的默认实现
  *
  * @author maxueyan
  * @date 2019/11/15
  */
-public class BaseDecorator implements CaffeineCache {
+public class BaseDecorator implements AsyncCaffeineCache {
 
     protected CaffeineCache cache;
 
@@ -30,6 +37,11 @@ public class BaseDecorator implements CaffeineCache {
         return this.cache.getListenPath();
     }
 
+    @Override
+    public CacheKeyType getKeyType() {
+        return this.cache.getKeyType();
+    }
+
     @Override
     public int getMaxSize() {
         return this.cache.getMaxSize();
@@ -40,11 +52,41 @@ public class BaseDecorator implements CaffeineCache {
         return this.cache.getExpireAfterWrite();
     }
 
+    @Override
+    public void setMaxSize(int maxSize) {
+        this.cache.setMaxSize(maxSize);
+    }
+
+    @Override
+    public void setExpireAfterWrite(int expireAfterWrite) {
+        this.cache.setExpireAfterWrite(expireAfterWrite);
+    }
+
+    @Override
+    public Executor getLoaderExecutor() {
+        return this.cache.getLoaderExecutor();
+    }
+
+    @Override
+    public int getRefreshAfterWrite() {
+        return this.cache.getRefreshAfterWrite();
+    }
+
+    @Override
+    public <K> long getAge(K id, TimeUnit unit) {
+        return this.cache.getAge(id, unit);
+    }
+
     @Override
     public Cache getCache() {
         return this.cache.getCache();
     }
 
+    @Override
+    public AsyncCache getAsyncCache() {
+        return this.cache instanceof AsyncCaffeineCache ? ((AsyncCaffeineCache) this.cache).getAsyncCache() : null;
+    }
+
     @Override
     public String getCacheStat() {
         return this.cache.getCacheStat();
@@ -55,6 +97,21 @@ public class BaseDecorator implements CaffeineCache {
         return this.cache.getValue(id);
     }
 
+    @Override
+    public Object getValueByLong(long id) {
+        return this.cache.getValueByLong(id);
+    }
+
+    @Override
+    public void addValueByLong(long id, Object value) {
+        this.cache.addValueByLong(id, value);
+    }
+
+    @Override
+    public void removeKeyByLong(long id) {
+        this.cache.removeKeyByLong(id);
+    }
+
     @Override
     public <K> Map<K, Object> getValues(Collection<K> ids) {
         return this.cache.getValues(ids);
@@ -80,8 +137,92 @@ public class BaseDecorator implements CaffeineCache {
         return this.cache.addValues(values);
     }
 
+    @Override
+    public <K> void addValue(K id, Object value, long expireAfterWrite, TimeUnit unit) {
+        this.cache.addValue(id, value, expireAfterWrite, unit);
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long expireAfterWrite, TimeUnit unit) {
+        return this.cache.addValues(values, expireAfterWrite, unit);
+    }
+
+    @Override
+    public long getVersion() {
+        return this.cache.getVersion();
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long version) {
+        return this.cache.addValue(id, value, version);
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long version) {
+        return this.cache.addValues(values, version);
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long expireAfterWrite, TimeUnit unit, long version) {
+        return this.cache.addValue(id, value, expireAfterWrite, unit, version);
+    }
+
     @Override
     public void removeKey(Object id) {
         this.cache.removeKey(id);
     }
+
+    @Override
+    public <K> void removeKeys(Collection<K> ids) {
+        this.cache.removeKeys(ids);
+    }
+
+    @Override
+    public void removeAll() {
+        this.cache.removeAll();
+    }
+
+    @Override
+    public void close() {
+        this.cache.close();
+    }
+
+    @Override
+    public void enableAbsentCache() {
+        this.cache.enableAbsentCache();
+    }
+
+    @Override
+    public <K> boolean isAbsent(K id) {
+        return this.cache.isAbsent(id);
+    }
+
+    @Override
+    public <K> boolean addAbsent(K id, long version) {
+        return this.cache.addAbsent(id, version);
+    }
+
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id) {
+        if (this.cache instanceof AsyncCaffeineCache) {
+            return ((AsyncCaffeineCache) this.cache).getValueAsync(id);
+        }
+        return AsyncCaffeineCache.super.getValueAsync(id);
+    }
+
+    @Override
+    public <K> CompletableFuture<Map<K, Object>> getValuesAsync(Collection<K> ids) {
+        if (this.cache instanceof AsyncCaffeineCache) {
+            return ((AsyncCaffeineCache) this.cache).getValuesAsync(ids);
+        }
+        return AsyncCaffeineCache.super.getValuesAsync(ids);
+    }
+
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        if (this.cache instanceof AsyncCaffeineCache) {
+            return ((AsyncCaffeineCache) this.cache).getValueAsync(id, loader);
+        }
+        return AsyncCaffeineCache.super.getValueAsync(id, loader);
+    }
 }
@@ -0,0 +1,99 @@
+package org.example.spi;
+
+import lombok.Data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 缓存变更事件
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Data
+public class CacheChangeEvent {
+
+    /**
+     * 变更类型
+     */
+    private ChangeType type;
+    /**
+     * 缓存名，为空时作用于监听路径下的全部缓存
+     */
+    private String cacheName;
+    /**
+     * 发送节点标识，接收方忽略自身发出的事件
+     */
+    private String source;
+    /**
+     * 删除的缓存key，REMOVE使用
+     */
+    private Collection<Object> keys = Collections.emptyList();
+    /**
+     * 刷新的缓存key和value，REFRESH使用
+     */
+    private Map<Object, Object> values = Collections.emptyMap();
+
+    /**
+     * 创建删除事件
+     *
+     * @param cacheName 缓存名
+     * @param keys 缓存key
+     * @return 变更事件
+     */
+    public static CacheChangeEvent remove(String cacheName, Collection<Object> keys) {
+        CacheChangeEvent event = new CacheChangeEvent();
+        event.setType(ChangeType.REMOVE);
+        event.setCacheName(cacheName);
+        event.setKeys(keys);
+        return event;
+    }
+
+    /**
+     * 创建刷新事件
+     *
+     * @param cacheName 缓存名
+     * @param values 缓存key和value
+     * @return 变更事件
+     */
+    public static CacheChangeEvent refresh(String cacheName, Map<Object, Object> values) {
+        CacheChangeEvent event = new CacheChangeEvent();
+        event.setType(ChangeType.REFRESH);
+        event.setCacheName(cacheName);
+        event.setValues(values);
+        return event;
+    }
+
+    /**
+     * 创建清空事件
+     *
+     * @param cacheName 缓存名
+     * @return 变更事件
+     */
+    public static CacheChangeEvent clear(String cacheName) {
+        CacheChangeEvent event = new CacheChangeEvent();
+        event.setType(ChangeType.CLEAR);
+        event.setCacheName(cacheName);
+        return event;
+    }
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        /**
+         * 删除指定key
+         */
+        REMOVE,
+        /**
+         * 用新值覆盖指定key
+         */
+        REFRESH,
+        /**
+         * 清空缓存
+         */
+        CLEAR
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.spi;
+
+/**
+ * 缓存变更监听器
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@FunctionalInterface
+public interface CacheChangeListener {
+
+    /**
+     * 处理缓存变更事件
+     *
+     * @param event 变更事件
+     */
+    void onChange(CacheChangeEvent event);
+}
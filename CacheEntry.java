@@ -0,0 +1,113 @@
+package org.example.core;
+
+/**
+ * 缓存条目，保存原始值、写入时间以及按格式化类型解码后的对象，开启解码缓存时同一条目同一类型只解码一次
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class CacheEntry {
+
+    /**
+     * 原始值
+     */
+    private final Object value;
+    /**
+     * 写入时间(System.nanoTime)
+     */
+    private final long writeNanos;
+    /**
+     * 是否缓存解码结果
+     */
+    private final boolean decodeCache;
+    /**
+     * 解码结果
+     */
+    private volatile Decoded decoded;
+
+    CacheEntry(Object value) {
+        this(value, true);
+    }
+
+    CacheEntry(Object value, boolean decodeCache) {
+        this.value = value;
+        this.writeNanos = System.nanoTime();
+        this.decodeCache = decodeCache;
+    }
+
+    Object getValue() {
+        return this.value;
+    }
+
+    long getWriteNanos() {
+        return this.writeNanos;
+    }
+
+    /**
+     * 按指定类型获取解码对象，首次访问时解码
+     *
+     * @param formatClass 数据类型
+     * @param <T> value类型
+     * @return 解码对象
+     */
+    @SuppressWarnings("unchecked")
+    <T> T decode(Class<T> formatClass) {
+        if (!this.decodeCache) {
+            return convert(decompress(this.value), formatClass);
+        }
+        Decoded current = this.decoded;
+        if (null != current && current.type == formatClass) {
+            return (T) current.object;
+        }
+        synchronized (this) {
+            current = this.decoded;
+            if (null != current && current.type == formatClass) {
+                return (T) current.object;
+            }
+            T object = convert(decompress(this.value), formatClass);
+            this.decoded = new Decoded(formatClass, object);
+            return object;
+        }
+    }
+
+    private static <T> T convert(Object raw, Class<T> formatClass) {
+        return formatClass.isInstance(raw) ? formatClass.cast(raw) : JsonUtils.findObject(String.valueOf(raw), formatClass);
+    }
+
+    /**
+     * 将可能被包装或压缩的缓存值还原为原始值
+     *
+     * @param stored 缓存中的值
+     * @return 原始值
+     */
+    static Object unwrap(Object stored) {
+        return decompress(strip(stored));
+    }
+
+    /**
+     * 去掉条目包装，压缩值保持压缩状态，用于估算条目大小
+     *
+     * @param stored 缓存中的值
+     * @return 写入时的值
+     */
+    static Object strip(Object stored) {
+        return stored instanceof CacheEntry ? ((CacheEntry) stored).value : stored;
+    }
+
+    private static Object decompress(Object value) {
+        return value instanceof ValueCompressor.Compressed ? ((ValueCompressor.Compressed) value).decompress() : value;
+    }
+
+    /**
+     * 解码结果
+     */
+    private static final class Decoded {
+        private final Class<?> type;
+        private final Object object;
+
+        Decoded(Class<?> type, Object object) {
+            this.type = type;
+            this.object = object;
+        }
+    }
+}
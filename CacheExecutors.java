@@ -0,0 +1,196 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存线程池，避免淘汰、删除通知和刷新加载占用ForkJoinPool.commonPool()。
+ * 维护线程池为小的有界平台线程池，供Caffeine执行淘汰清理和删除通知；加载线程池为每任务一个虚拟线程，
+ * 适合阻塞的加载逻辑，运行环境不支持虚拟线程时退化为有界的守护线程池，队列满时拒绝任务。
+ * 可通过{@link #setDefaultExecutor(Executor)}、{@link #setDefaultLoaderExecutor(Executor)}设置未单独配置线程池的缓存使用的默认线程池。
+ * 经{@link #monitored(String, String, Executor)}包装后，任务从提交到开始执行的排队时间计入{@link CacheLatencyMonitor}
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public final class CacheExecutors {
+
+    /**
+     * 共享维护线程池
+     */
+    private static volatile ExecutorService maintenance;
+    /**
+     * 共享加载线程池
+     */
+    private static volatile ExecutorService loader;
+    /**
+     * 未配置线程池的缓存使用的默认维护线程池，为空时使用共享维护线程池
+     */
+    private static volatile Executor defaultExecutor;
+    /**
+     * 未配置加载线程池的缓存使用的默认加载线程池，为空时不配置
+     */
+    private static volatile Executor defaultLoaderExecutor;
+
+    private CacheExecutors() {
+    }
+
+    /**
+     * 设置默认维护线程池，只影响之后创建的缓存
+     *
+     * @param executor 维护线程池，null-使用共享维护线程池
+     */
+    public static void setDefaultExecutor(Executor executor) {
+        defaultExecutor = executor;
+    }
+
+    /**
+     * 获取默认维护线程池
+     *
+     * @return 已设置的默认维护线程池，未设置时为共享维护线程池
+     */
+    public static Executor defaultExecutor() {
+        Executor executor = defaultExecutor;
+        return null == executor ? maintenance() : executor;
+    }
+
+    /**
+     * 设置默认加载线程池，只影响之后创建的缓存
+     *
+     * @param executor 加载线程池，null-不配置
+     */
+    public static void setDefaultLoaderExecutor(Executor executor) {
+        defaultLoaderExecutor = executor;
+    }
+
+    /**
+     * 获取默认加载线程池
+     *
+     * @return 已设置的默认加载线程池，未设置时为null
+     */
+    public static Executor defaultLoaderExecutor() {
+        return defaultLoaderExecutor;
+    }
+
+    /**
+     * 获取共享维护线程池，线程数和排队上限见{@link CaffeineCacheConstants#DEFAULT_MAINTENANCE_THREADS}，
+     * 队列满时由提交线程执行，淘汰清理不会被丢弃
+     *
+     * @return 维护线程池
+     */
+    public static ExecutorService maintenance() {
+        if (null == maintenance) {
+            synchronized (CacheExecutors.class) {
+                if (null == maintenance) {
+                    maintenance = newMaintenancePool("caffeine-cache-maintenance", CaffeineCacheConstants.DEFAULT_MAINTENANCE_THREADS,
+                            CaffeineCacheConstants.DEFAULT_MAINTENANCE_QUEUE_SIZE);
+                }
+            }
+        }
+        return maintenance;
+    }
+
+    /**
+     * 获取共享加载线程池，每个任务一个虚拟线程，不支持虚拟线程时为有界守护线程池，
+     * 线程数和排队上限见{@link CaffeineCacheConstants#DEFAULT_LOADER_THREADS}，队列满时抛出{@link RejectedExecutionException}
+     *
+     * @return 加载线程池
+     */
+    public static ExecutorService loader() {
+        if (null == loader) {
+            synchronized (CacheExecutors.class) {
+                if (null == loader) {
+                    loader = newVirtualThreadPerTask("caffeine-cache-loader");
+                }
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * 创建有界平台线程池，队列满时由提交线程执行
+     *
+     * @param namePrefix 线程名前缀
+     * @param threads 最大线程数
+     * @param queueSize 排队上限
+     * @return 线程池
+     */
+    public static ExecutorService newMaintenancePool(String namePrefix, int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), daemonFactory(namePrefix), new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 创建每任务一个虚拟线程的线程池，运行环境不支持虚拟线程时退化为有界守护线程池，队列满时抛出{@link RejectedExecutionException}
+     *
+     * @param namePrefix 退化时的线程名前缀
+     * @return 线程池
+     */
+    public static ExecutorService newVirtualThreadPerTask(String namePrefix) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("运行环境不支持虚拟线程, 使用有界平台线程池加载, namePrefix:{}", namePrefix);
+            return newLoaderPool(namePrefix, CaffeineCacheConstants.DEFAULT_LOADER_THREADS, CaffeineCacheConstants.DEFAULT_LOADER_QUEUE_SIZE);
+        }
+    }
+
+    /**
+     * 创建有界平台加载线程池，队列满时抛出{@link RejectedExecutionException}，由提交方降级处理，
+     * 阻塞的加载任务不在提交线程执行
+     *
+     * @param namePrefix 线程名前缀
+     * @param threads 最大线程数
+     * @param queueSize 排队上限
+     * @return 线程池
+     */
+    public static ExecutorService newLoaderPool(String namePrefix, int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueSize), daemonFactory(namePrefix), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 包装线程池，记录任务从提交到开始执行的排队时间
+     *
+     * @param cacheName 缓存名
+     * @param op 操作名，如{@link CacheLatencyMonitor#OP_MAINTENANCE_QUEUE}
+     * @param executor 被包装的线程池
+     * @return 包装后的线程池
+     */
+    public static Executor monitored(String cacheName, String op, Executor executor) {
+        LatencyHistogram queueLatency = CacheLatencyMonitor.histogram(cacheName, op);
+        return task -> {
+            long submitNanos = System.nanoTime();
+            executor.execute(() -> {
+                queueLatency.record(System.nanoTime() - submitNanos);
+                task.run();
+            });
+        };
+    }
+
+    private static ThreadFactory daemonFactory(String namePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.spi;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 缓存key类型，决定缓存key在写入Caffeine前的转换方式
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public enum CacheKeyType {
+
+    /**
+     * 统一转换为String，兼容历史行为，1、1L、"1"视为同一个key
+     */
+    STRING {
+        @Override
+        public Object convert(Object id) {
+            return id instanceof String ? id : String.valueOf(id);
+        }
+
+        @Override
+        public Object convert(long id) {
+            return Long.toString(id);
+        }
+    },
+
+    /**
+     * long型key，整数值和整数字符串统一转换为Long，不产生String；小数、超出范围或无法解析的key视为无效
+     */
+    LONG {
+        @Override
+        public Object convert(Object id) {
+            if (id instanceof Long) {
+                return id;
+            }
+            return toLong(id);
+        }
+
+        @Override
+        public Object convert(long id) {
+            return id;
+        }
+    },
+
+    /**
+     * int型key，整数值和整数字符串统一转换为Integer，不产生String；小数、超出范围或无法解析的key视为无效
+     */
+    INT {
+        @Override
+        public Object convert(Object id) {
+            if (id instanceof Integer) {
+                return id;
+            }
+            Long value = toLong(id);
+            return null == value ? null : convert(value.longValue());
+        }
+
+        @Override
+        public Object convert(long id) {
+            return id < Integer.MIN_VALUE || id > Integer.MAX_VALUE ? null : (int) id;
+        }
+    },
+
+    /**
+     * key原样使用，要求key正确实现equals/hashCode且不可变
+     */
+    IDENTITY {
+        @Override
+        public Object convert(Object id) {
+            return id;
+        }
+
+        @Override
+        public Object convert(long id) {
+            return id;
+        }
+    };
+
+    /**
+     * 转换缓存key
+     *
+     * @param id 原始key，非null
+     * @return 写入Caffeine的key，key无效时为null
+     */
+    public abstract Object convert(Object id);
+
+    /**
+     * 转换long型缓存key，调用方无需先装箱再按类型分派
+     *
+     * @param id 原始key
+     * @return 写入Caffeine的key，key无效时为null
+     */
+    public abstract Object convert(long id);
+
+    /**
+     * 按整数解析key，小数、超出long范围或无法解析时返回null
+     *
+     * @param id 原始key
+     * @return long值
+     */
+    private static Long toLong(Object id) {
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        if (id instanceof BigInteger) {
+            BigInteger value = (BigInteger) id;
+            return value.bitLength() < Long.SIZE ? value.longValue() : null;
+        }
+        if (id instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) id).longValueExact();
+            } catch (ArithmeticException e) {
+                return null;
+            }
+        }
+        if (id instanceof Double || id instanceof Float) {
+            double value = ((Number) id).doubleValue();
+            return value == Math.rint(value) && value >= Long.MIN_VALUE && value < 0x1p63 ? (long) value : null;
+        }
+        if (id instanceof Number) {
+            return ((Number) id).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
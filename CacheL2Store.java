@@ -0,0 +1,66 @@
+package org.example.spi;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 二级缓存存储，多节点共享，如Redis。实现需自行完成key/value序列化，并以缓存名区分命名空间
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public interface CacheL2Store {
+
+    /**
+     * 获取单个值
+     *
+     * @param cacheName 缓存名
+     * @param key 缓存key
+     * @return 缓存值，不存在时为null
+     */
+    Object get(String cacheName, Object key);
+
+    /**
+     * 一次调用批量获取，远程实现应使用mget或pipeline
+     *
+     * @param cacheName 缓存名
+     * @param keys 缓存key
+     * @param <K> key类型
+     * @return 缓存key - 缓存值，只包含存在的key
+     */
+    <K> Map<K, Object> multiGet(String cacheName, Collection<K> keys);
+
+    /**
+     * 写入单个值
+     *
+     * @param cacheName 缓存名
+     * @param key 缓存key
+     * @param value 缓存值
+     * @param expireAfterWrite 失效时间(秒)
+     */
+    void put(String cacheName, Object key, Object value, int expireAfterWrite);
+
+    /**
+     * 一次调用批量写入
+     *
+     * @param cacheName 缓存名
+     * @param values 缓存key - 缓存值
+     * @param expireAfterWrite 失效时间(秒)
+     */
+    void putAll(String cacheName, Map<?, ?> values, int expireAfterWrite);
+
+    /**
+     * 批量删除
+     *
+     * @param cacheName 缓存名
+     * @param keys 缓存key
+     */
+    void remove(String cacheName, Collection<?> keys);
+
+    /**
+     * 清空缓存名下全部数据
+     *
+     * @param cacheName 缓存名
+     */
+    void clear(String cacheName);
+}
@@ -0,0 +1,155 @@
+package org.example.core;
+
+import com.kuaikan.common.perfcounter.PerfCounter;
+import com.kuaikan.common.perfcounter.common.CounterGaugeMetric;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存延迟监控，按缓存名和操作维护延迟直方图，随监控数据定时上报p50/p99/p999/max
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public final class CacheLatencyMonitor {
+
+    public static final String OP_GET_VALUE = "getValue";
+    public static final String OP_GET_VALUES = "getValues";
+    public static final String OP_GET_VALUE_AND_FORMAT = "getValueAndFormat";
+    public static final String OP_GET_VALUES_AND_FORMAT = "getValuesAndFormat";
+    public static final String OP_LOAD = "load";
+    public static final String OP_DECOMPRESS = "decompress";
+    public static final String OP_WRITE_BEHIND_LAG = "writeBehindLag";
+    public static final String OP_MAINTENANCE_QUEUE = "maintenanceQueue";
+    public static final String OP_LOADER_QUEUE = "loaderQueue";
+
+    private static final String TAG_PATTERN = "name=%s,op=%s,stat=%s";
+    private static final String METRIC_NAME = "CAFFEINE_LATENCY";
+    private static final String DESC = "本地缓存操作耗时(微秒)";
+    private static final String STAT_FORMAT = "%s:(%s)";
+
+    private static final CounterGaugeMetric LATENCY_METRIC = new MonitorDecorator.CaffeineCacheMonitorMetric(METRIC_NAME, TAG_PATTERN, DESC);
+
+    /**
+     * 缓存名 - 操作 - 直方图
+     */
+    private static final ConcurrentMap<String, ConcurrentMap<String, Recorder>> RECORDERS = new ConcurrentHashMap<>();
+
+    static {
+        CacheMetricsReporter.register(CacheLatencyMonitor::flush);
+    }
+
+    private CacheLatencyMonitor() {
+    }
+
+    /**
+     * 获取缓存操作的延迟直方图，调用方应持有返回值，避免在热路径上重复查找。
+     * 每次调用登记一个持有者，持有者关闭时调用{@link #release(String, String...)}，全部持有者释放后直方图才移除，
+     * 同名缓存重建或其他持有者仍在记录时不会写入已移除的直方图
+     *
+     * @param cacheName 缓存名
+     * @param op 操作名
+     * @return 延迟直方图
+     */
+    public static LatencyHistogram histogram(String cacheName, String op) {
+        return RECORDERS.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>())
+                .compute(op, (operation, recorder) -> {
+                    Recorder current = null == recorder ? new Recorder(cacheName, operation) : recorder;
+                    current.owners++;
+                    return current;
+                }).histogram;
+    }
+
+    /**
+     * 获取缓存最近一个上报周期的延迟统计
+     *
+     * @param cacheName 缓存名
+     * @return 延迟统计描述
+     */
+    public static String describe(String cacheName) {
+        Map<String, Recorder> recorders = RECORDERS.get(cacheName);
+        if (null == recorders || recorders.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Recorder recorder : recorders.values()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(String.format(STAT_FORMAT, recorder.op, recorder.lastSnapshot));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 释放持有的直方图，最后一个持有者释放时上报一次剩余数据并移除，持有者关闭时调用
+     *
+     * @param cacheName 缓存名
+     * @param ops 持有的操作名，每个操作对应一次{@link #histogram(String, String)}调用
+     */
+    public static void release(String cacheName, String... ops) {
+        ConcurrentMap<String, Recorder> recorders = RECORDERS.get(cacheName);
+        if (null == recorders) {
+            return;
+        }
+        for (String op : ops) {
+            recorders.computeIfPresent(op, (operation, recorder) -> {
+                if (--recorder.owners > 0) {
+                    return recorder;
+                }
+                recorder.flush();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 上报全部直方图
+     */
+    private static void flush() {
+        for (Map<String, Recorder> recorders : RECORDERS.values()) {
+            for (Recorder recorder : recorders.values()) {
+                recorder.flush();
+            }
+        }
+    }
+
+    /**
+     * 单个缓存操作的直方图及上报标签
+     */
+    private static final class Recorder {
+        private final String op;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        /**
+         * 持有者数，只在RECORDERS的compute中读写
+         */
+        private int owners;
+        private final Object[] p50Tags;
+        private final Object[] p99Tags;
+        private final Object[] p999Tags;
+        private final Object[] maxTags;
+        private volatile LatencyHistogram.Snapshot lastSnapshot = LatencyHistogram.Snapshot.EMPTY;
+
+        Recorder(String cacheName, String op) {
+            this.op = op;
+            this.p50Tags = new Object[] { cacheName, op, "p50" };
+            this.p99Tags = new Object[] { cacheName, op, "p99" };
+            this.p999Tags = new Object[] { cacheName, op, "p999" };
+            this.maxTags = new Object[] { cacheName, op, "max" };
+        }
+
+        void flush() {
+            LatencyHistogram.Snapshot snapshot = this.histogram.snapshotAndReset();
+            this.lastSnapshot = snapshot;
+            if (snapshot.getCount() <= 0) {
+                return;
+            }
+            PerfCounter.countGauge((int) (snapshot.getP50() / 1000), LATENCY_METRIC, this.p50Tags);
+            PerfCounter.countGauge((int) (snapshot.getP99() / 1000), LATENCY_METRIC, this.p99Tags);
+            PerfCounter.countGauge((int) (snapshot.getP999() / 1000), LATENCY_METRIC, this.p999Tags);
+            PerfCounter.countGauge((int) (snapshot.getMax() / 1000), LATENCY_METRIC, this.maxTags);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存指标定时上报，热路径只做本地累加，由后台线程按固定间隔汇总上报
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public final class CacheMetricsReporter {
+
+    /**
+     * 上报任务
+     */
+    private static final List<MetricFlusher> FLUSHERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * 上报线程
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "caffeine-cache-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        int interval = CaffeineCacheConstants.DEFAULT_MONITOR_FLUSH_INTERVAL;
+        SCHEDULER.scheduleWithFixedDelay(CacheMetricsReporter::flushAll, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(CacheMetricsReporter::flushAll, "caffeine-cache-metrics-shutdown"));
+    }
+
+    private CacheMetricsReporter() {
+    }
+
+    /**
+     * 注册上报任务
+     *
+     * @param flusher 上报任务
+     */
+    public static void register(MetricFlusher flusher) {
+        FLUSHERS.add(flusher);
+    }
+
+    /**
+     * 注销上报任务，注销前先上报一次剩余数据
+     *
+     * @param flusher 上报任务
+     */
+    public static void unregister(MetricFlusher flusher) {
+        if (FLUSHERS.remove(flusher)) {
+            flusher.flush();
+        }
+    }
+
+    /**
+     * 立即上报全部数据
+     */
+    public static void flushAll() {
+        for (MetricFlusher flusher : FLUSHERS) {
+            try {
+                flusher.flush();
+            } catch (Exception e) {
+                log.error("缓存指标上报异常！", e);
+            }
+        }
+    }
+
+    /**
+     * 上报任务
+     */
+    @FunctionalInterface
+    public interface MetricFlusher {
+        /**
+         * 上报累计数据
+         */
+        void flush();
+    }
+}
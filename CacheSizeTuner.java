@@ -0,0 +1,244 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存容量调节器，在所有注册缓存共享的内存预算内，按各缓存的缺失率曲线分配容量，内存优先流向每字节带来命中最多的缓存。
+ * 缓存需通过{@link CaffeineCacheConfig#getSampleRate()}开启采样，未产生采样访问的缓存保持当前容量并计入预算。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class CacheSizeTuner {
+
+    private static final String DECISION_FORMAT = "capacity %d->%d, missRatio %.4f->%.4f, budgetShare %.1f%%";
+
+    /**
+     * 全部缓存共享的内存预算(字节)
+     */
+    private final long budgetBytes;
+    /**
+     * 已注册缓存
+     */
+    private final List<CaffeineCacheImpl> caches = new CopyOnWriteArrayList<>();
+    /**
+     * 定期调整线程
+     */
+    private ScheduledExecutorService scheduler;
+
+    public CacheSizeTuner(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * 注册需要调整容量的缓存
+     *
+     * @param cache 缓存
+     */
+    public void register(CaffeineCacheImpl cache) {
+        if (null == cache.getSampler()) {
+            log.warn("缓存未开启缺失率采样, 不参与容量调整, cacheName:{}", cache.getCacheName());
+            return;
+        }
+        this.caches.add(cache);
+    }
+
+    /**
+     * 开始定期调整容量
+     *
+     * @param intervalSeconds 调整间隔(秒)
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (null != this.scheduler) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caffeine-cache-size-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::rebalance, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止定期调整
+     */
+    public synchronized void stop() {
+        if (null != this.scheduler) {
+            this.scheduler.shutdown();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 按缺失率曲线重新分配容量：各缓存从当前容量起步，每次把预算给每字节新增命中最多的一档；
+     * 预算不足时从每字节损失命中更少的缓存回收，收益差为正才移动，无收益的缓存保持当前容量
+     */
+    public void rebalance() {
+        try {
+            List<Allocation> allocations = new ArrayList<>(this.caches.size());
+            long used = 0L;
+            for (CaffeineCacheImpl cache : this.caches) {
+                long unitBytes = cache.isWeighted() ? 1L : Math.max(1L, cache.estimateEntryBytes());
+                MissRatioCurveSampler.Curve curve = cache.getSampler().snapshotAndDecay();
+                if (null == curve) {
+                    used += cache.getCapacity() * unitBytes;
+                    continue;
+                }
+                Allocation allocation = new Allocation(cache, curve, unitBytes);
+                used += allocation.bytes();
+                allocations.add(allocation);
+            }
+            // 超出预算时先从每字节损失最少的缓存回收
+            while (used > this.budgetBytes) {
+                Allocation donor = cheapestShrink(allocations, null);
+                if (null == donor) {
+                    break;
+                }
+                used -= donor.shrinkBytes();
+                donor.level--;
+            }
+            int maxMoves = allocations.size() * MissRatioCurveSampler.SIZE_FACTORS.length * 2;
+            for (int move = 0; move < maxMoves; move++) {
+                Allocation best = null;
+                double bestGain = 0d;
+                for (Allocation allocation : allocations) {
+                    long step = allocation.growBytes();
+                    if (step <= 0) {
+                        continue;
+                    }
+                    double gain = (double) allocation.growHits() / step;
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        best = allocation;
+                    }
+                }
+                if (null == best) {
+                    break;
+                }
+                long step = best.growBytes();
+                List<Allocation> donors = new ArrayList<>();
+                while (used + step > this.budgetBytes) {
+                    Allocation donor = cheapestShrink(allocations, best);
+                    if (null == donor || donor.shrinkLoss() >= bestGain) {
+                        break;
+                    }
+                    used -= donor.shrinkBytes();
+                    donor.level--;
+                    donors.add(donor);
+                }
+                if (used + step > this.budgetBytes) {
+                    // 回收后仍放不下，撤销本轮回收
+                    for (int i = donors.size() - 1; i >= 0; i--) {
+                        Allocation donor = donors.get(i);
+                        used += donor.growBytes();
+                        donor.level++;
+                    }
+                    break;
+                }
+                used += step;
+                best.level++;
+            }
+            for (Allocation allocation : allocations) {
+                allocation.apply();
+            }
+        } catch (Exception e) {
+            log.error("调整缓存容量异常", e);
+        }
+    }
+
+    /**
+     * 查找缩小一档时每字节损失命中最少的缓存
+     *
+     * @param allocations 容量分配
+     * @param exclude 不参与回收的缓存，可为null
+     * @return 缓存，均无法缩小时为null
+     */
+    private static Allocation cheapestShrink(List<Allocation> allocations, Allocation exclude) {
+        Allocation cheapest = null;
+        double cheapestLoss = Double.MAX_VALUE;
+        for (Allocation allocation : allocations) {
+            if (allocation == exclude || allocation.shrinkBytes() <= 0) {
+                continue;
+            }
+            double loss = allocation.shrinkLoss();
+            if (loss < cheapestLoss) {
+                cheapestLoss = loss;
+                cheapest = allocation;
+            }
+        }
+        return cheapest;
+    }
+
+    /**
+     * 单个缓存的容量分配，候选容量以当前容量为基准
+     */
+    private final class Allocation {
+        private final CaffeineCacheImpl cache;
+        private final MissRatioCurveSampler.Curve curve;
+        private final long unitBytes;
+        private final int currentLevel;
+        private int level;
+
+        Allocation(CaffeineCacheImpl cache, MissRatioCurveSampler.Curve curve, long unitBytes) {
+            this.cache = cache;
+            this.curve = curve;
+            this.unitBytes = unitBytes;
+            long capacity = cache.getCapacity();
+            int current = 0;
+            while (current + 1 < curve.sizes.length && curve.sizes[current + 1] <= capacity) {
+                current++;
+            }
+            this.currentLevel = current;
+            this.level = current;
+        }
+
+        long bytes() {
+            return this.curve.sizes[this.level] * this.unitBytes;
+        }
+
+        long growBytes() {
+            if (this.level + 1 >= this.curve.sizes.length) {
+                return -1L;
+            }
+            return (this.curve.sizes[this.level + 1] - this.curve.sizes[this.level]) * this.unitBytes;
+        }
+
+        long growHits() {
+            return this.curve.hits[this.level + 1] - this.curve.hits[this.level];
+        }
+
+        long shrinkBytes() {
+            if (this.level <= 0) {
+                return -1L;
+            }
+            return (this.curve.sizes[this.level] - this.curve.sizes[this.level - 1]) * this.unitBytes;
+        }
+
+        /**
+         * 缩小一档每字节损失的命中数
+         */
+        double shrinkLoss() {
+            return (double) (this.curve.hits[this.level] - this.curve.hits[this.level - 1]) / shrinkBytes();
+        }
+
+        void apply() {
+            if (this.level == this.currentLevel) {
+                return;
+            }
+            long previous = this.cache.getCapacity();
+            long capacity = this.curve.sizes[this.level];
+            String decision = String.format(DECISION_FORMAT, previous, capacity, this.curve.missRatio(this.currentLevel),
+                    this.curve.missRatio(this.level), 100d * bytes() / CacheSizeTuner.this.budgetBytes);
+            this.cache.resize(capacity, decision);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 缓存开关，支持全局及按缓存名绕过@AutoCache缓存，直接执行原方法。
+ * 开关状态整体替换为不可变快照，切面热路径上只有一次volatile读。
+ * 启动时读取系统属性{@link CaffeineCacheConstants#DISABLE_CACHE_CONFIG}，配置中心变更时调用{@link #apply(String)}。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public final class CacheSwitch {
+
+    /**
+     * 全局关闭的配置值
+     */
+    private static final String ALL = "all";
+
+    /**
+     * 当前开关状态
+     */
+    private static volatile State state = State.parse(System.getProperty(CaffeineCacheConstants.DISABLE_CACHE_CONFIG));
+
+    private CacheSwitch() {
+    }
+
+    /**
+     * 判断缓存是否被绕过
+     *
+     * @param cacheName 缓存名
+     * @return true-绕过缓存
+     */
+    public static boolean isBypassed(String cacheName) {
+        State current = state;
+        return current.all || (!current.caches.isEmpty() && null != cacheName && current.caches.contains(cacheName));
+    }
+
+    /**
+     * 按{@link CaffeineCacheConstants#DISABLE_CACHE_CONFIG}配置值更新开关
+     *
+     * @param config true/all-全部关闭，逗号分隔的缓存名-关闭指定缓存，空或false-全部开启
+     */
+    public static synchronized void apply(String config) {
+        state = State.parse(config);
+        log.info("缓存开关变更, config:{}", config);
+    }
+
+    /**
+     * 设置全局开关
+     *
+     * @param disabled true-全部绕过
+     */
+    public static synchronized void setGlobalDisabled(boolean disabled) {
+        state = new State(disabled, state.caches);
+        log.info("缓存全局开关变更, disabled:{}", disabled);
+    }
+
+    /**
+     * 设置单个缓存开关
+     *
+     * @param cacheName 缓存名
+     * @param disabled true-绕过该缓存
+     */
+    public static synchronized void setDisabled(String cacheName, boolean disabled) {
+        State current = state;
+        Set<String> caches = new HashSet<>(current.caches);
+        if (disabled) {
+            caches.add(cacheName);
+        } else {
+            caches.remove(cacheName);
+        }
+        state = new State(current.all, caches);
+        log.info("缓存开关变更, cacheName:{}, disabled:{}", cacheName, disabled);
+    }
+
+    /**
+     * 开关状态快照
+     */
+    private static final class State {
+        private final boolean all;
+        private final Set<String> caches;
+
+        State(boolean all, Collection<String> caches) {
+            this.all = all;
+            this.caches = caches.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(caches));
+        }
+
+        static State parse(String config) {
+            if (null == config || config.trim().isEmpty() || Boolean.FALSE.toString().equalsIgnoreCase(config.trim())) {
+                return new State(false, Collections.emptySet());
+            }
+            String trimmed = config.trim();
+            if (Boolean.TRUE.toString().equalsIgnoreCase(trimmed) || ALL.equalsIgnoreCase(trimmed)) {
+                return new State(true, Collections.emptySet());
+            }
+            Set<String> caches = new HashSet<>();
+            for (String name : trimmed.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    caches.add(name.trim());
+                }
+            }
+            return new State(false, caches);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.spi;
+
+/**
+ * 缓存变更通知通道，按监听路径在节点之间传递变更事件
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public interface CacheSyncTransport {
+
+    /**
+     * 订阅监听路径
+     *
+     * @param path 监听路径
+     * @param listener 监听器
+     */
+    void subscribe(String path, CacheChangeListener listener);
+
+    /**
+     * 取消订阅
+     *
+     * @param path 监听路径
+     * @param listener 监听器
+     */
+    void unsubscribe(String path, CacheChangeListener listener);
+
+    /**
+     * 发布变更事件
+     *
+     * @param path 监听路径
+     * @param event 变更事件
+     */
+    void publish(String path, CacheChangeEvent event);
+}
@@ -0,0 +1,27 @@
+package org.example.spi;
+
+/**
+ * 缓存值压缩编解码器，用于按阈值压缩大字符串和字节数组
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public interface CacheValueCodec {
+
+    /**
+     * 压缩
+     *
+     * @param raw 原始字节
+     * @return 压缩后的字节，压缩后不小于原始字节时返回null，按原值保存
+     */
+    byte[] compress(byte[] raw);
+
+    /**
+     * 解压
+     *
+     * @param compressed 压缩后的字节
+     * @param originalLength 原始字节长度
+     * @return 原始字节
+     */
+    byte[] decompress(byte[] compressed, int originalLength);
+}
@@ -0,0 +1,20 @@
+package org.example.spi;
+
+/**
+ * 缓存条目占用内存估算器，用于按字节限制缓存容量
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@FunctionalInterface
+public interface CacheValueSizeEstimator {
+
+    /**
+     * 估算缓存条目占用的字节数
+     *
+     * @param key 缓存key
+     * @param value 缓存值
+     * @return 估算字节数，非负
+     */
+    int estimate(Object key, Object value);
+}
@@ -4,6 +4,8 @@ import com.github.benmanes.caffeine.cache.Cache;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CaffeineCache
@@ -27,6 +29,15 @@ public interface CaffeineCache {
      */
     String getListenPath();
 
+    /**
+     * 获取key类型，缓存key按该类型转换后比较
+     *
+     * @return key类型，默认{@link CacheKeyType#STRING}
+     */
+    default CacheKeyType getKeyType() {
+        return CacheKeyType.STRING;
+    }
+
     /**
      * 获取最大数量
      * 
@@ -42,9 +53,56 @@ public interface CaffeineCache {
     int getExpireAfterWrite();
 
     /**
-     * 获取缓存对象
+     * 运行时调整缓存最大数量，保留已有缓存，超出部分按淘汰策略淘汰；默认实现不支持调整，忽略本次调用
+     *
+     * @param maxSize 缓存最大数量
+     */
+    default void setMaxSize(int maxSize) {
+    }
+
+    /**
+     * 运行时调整缓存失效时间，保留已有缓存；默认实现不支持调整，忽略本次调用
+     *
+     * @param expireAfterWrite 失效时间(秒)
+     */
+    default void setExpireAfterWrite(int expireAfterWrite) {
+    }
+
+    /**
+     * 获取阻塞加载线程池，提前刷新在该线程池中执行
+     *
+     * @return 加载线程池，未配置时为null，默认未配置
+     */
+    default Executor getLoaderExecutor() {
+        return null;
+    }
+
+    /**
+     * 获取异步刷新时间
+     *
+     * @return 写入多少秒后异步刷新，0-不刷新，默认不刷新
+     */
+    default int getRefreshAfterWrite() {
+        return 0;
+    }
+
+    /**
+     * 获取缓存值写入后经过的时间
+     *
+     * @param id 缓存key
+     * @param unit 时间单位
+     * @param <K> key类型
+     * @return 写入后经过的时间，-1-不存在或无法获取，默认无法获取
+     */
+    default <K> long getAge(K id, TimeUnit unit) {
+        return -1L;
+    }
+
+    /**
+     * 获取底层Caffeine缓存，用于统计、容量等管理操作。
+     * 值为实现内部的存储形式，开启解码缓存或值压缩时可能是包装对象，读取缓存值应使用getValue系列接口
      * 
-     * @return 缓存
+     * @return 缓存，key为转换后的缓存key，value为存储形式的缓存值
      */
     Cache getCache();
 
@@ -114,6 +172,87 @@ public interface CaffeineCache {
      */
     <K, V> int addValues(Map<K, V> values);
 
+    /**
+     * 按指定失效时间添加单个缓存，缓存未开启按条目失效时间时使用统一失效时间；默认实现按统一失效时间写入
+     *
+     * @param id 缓存id
+     * @param value 缓存值
+     * @param expireAfterWrite 失效时间
+     * @param unit 时间单位
+     * @param <K> key类型
+     */
+    default <K> void addValue(K id, Object value, long expireAfterWrite, TimeUnit unit) {
+        addValue(id, value);
+    }
+
+    /**
+     * 按指定失效时间批量添加缓存，缓存未开启按条目失效时间时使用统一失效时间；默认实现按统一失效时间写入
+     *
+     * @param values 缓存key和对应value
+     * @param expireAfterWrite 失效时间
+     * @param unit 时间单位
+     * @param <K> key类型
+     * @param <V> value类型
+     * @return 变更行数
+     */
+    default <K, V> int addValues(Map<K, V> values, long expireAfterWrite, TimeUnit unit) {
+        return addValues(values);
+    }
+
+    /**
+     * 获取缓存当前版本，加载数据前获取，回写时传入带版本的addValue；默认实现不跟踪版本，始终为0
+     *
+     * @return 当前版本
+     */
+    default long getVersion() {
+        return 0L;
+    }
+
+    /**
+     * 带版本添加单个缓存，key在该版本之后被删除过时丢弃本次写入；默认实现不跟踪版本，直接写入
+     *
+     * @param id 缓存id
+     * @param value 缓存值
+     * @param version 开始加载时的缓存版本
+     * @param <K> key类型
+     * @return true-已写入，false-已丢弃
+     */
+    default <K> boolean addValue(K id, Object value, long version) {
+        if (null == id || null == value) {
+            return false;
+        }
+        addValue(id, value);
+        return true;
+    }
+
+    /**
+     * 带版本按指定失效时间添加单个缓存，key在该版本之后被删除过时丢弃本次写入；默认实现按统一失效时间带版本写入
+     *
+     * @param id 缓存id
+     * @param value 缓存值
+     * @param expireAfterWrite 失效时间
+     * @param unit 时间单位
+     * @param version 开始加载时的缓存版本
+     * @param <K> key类型
+     * @return true-已写入，false-已丢弃
+     */
+    default <K> boolean addValue(K id, Object value, long expireAfterWrite, TimeUnit unit, long version) {
+        return addValue(id, value, version);
+    }
+
+    /**
+     * 带版本批量添加缓存，在该版本之后被删除过的key不写入；默认实现不跟踪版本，直接写入
+     *
+     * @param values 缓存key和对应value
+     * @param version 开始加载时的缓存版本
+     * @param <K> key类型
+     * @param <V> value类型
+     * @return 变更行数
+     */
+    default <K, V> int addValues(Map<K, V> values, long version) {
+        return addValues(values);
+    }
+
     /**
      * 从缓存删除元素
      * 
@@ -121,4 +260,95 @@ public interface CaffeineCache {
      * @param <K> key类型
      */
     <K> void removeKey(K id);
+
+    /**
+     * long型key读取，实现可按key类型直接转换避免装箱；默认实现装箱后调用{@link #getValue(Object)}
+     *
+     * @param id 缓存key
+     * @return 缓存值
+     */
+    default Object getValueByLong(long id) {
+        return getValue(id);
+    }
+
+    /**
+     * long型key写入；默认实现装箱后调用{@link #addValue(Object, Object)}
+     *
+     * @param id 缓存key
+     * @param value 缓存值
+     */
+    default void addValueByLong(long id, Object value) {
+        addValue(id, value);
+    }
+
+    /**
+     * long型key删除；默认实现装箱后调用{@link #removeKey(Object)}
+     *
+     * @param id 缓存key
+     */
+    default void removeKeyByLong(long id) {
+        removeKey(id);
+    }
+
+    /**
+     * 从缓存批量删除元素，默认实现逐个调用{@link #removeKey(Object)}
+     *
+     * @param ids 缓存key
+     * @param <K> key类型
+     */
+    default <K> void removeKeys(Collection<K> ids) {
+        if (null == ids) {
+            return;
+        }
+        for (K id : ids) {
+            if (null != id) {
+                removeKey(id);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，默认实现清空{@link #getCache()}
+     */
+    default void removeAll() {
+        Cache cache = getCache();
+        if (null != cache) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 开启空值缓存，空值标记使用缓存配置中独立的失效时间和容量，重复调用无影响；默认实现不支持空值缓存，忽略本次调用
+     */
+    default void enableAbsentCache() {
+    }
+
+    /**
+     * 判断key是否被标记为不存在
+     *
+     * @param id 缓存key
+     * @param <K> key类型
+     * @return true-已标记为不存在，默认实现始终为false
+     */
+    default <K> boolean isAbsent(K id) {
+        return false;
+    }
+
+    /**
+     * 带版本标记key不存在，未开启空值缓存或key在该版本之后被删除过时不写入
+     *
+     * @param id 缓存key
+     * @param version 开始加载时的缓存版本
+     * @param <K> key类型
+     * @return true-已写入，默认实现不支持空值缓存，始终为false
+     */
+    default <K> boolean addAbsent(K id, long version) {
+        return false;
+    }
+
+    /**
+     * 关闭缓存，释放监控注册、后台线程等资源，缓存从管理器移除或应用关闭时调用；装饰器关闭后继续关闭被装饰缓存，默认无资源需释放
+     */
+    default void close() {
+    }
 }
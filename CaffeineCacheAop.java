@@ -1,24 +1,34 @@
 package org.example.core;
 
 
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.example.CaffeineCacheManager;
+import org.example.spi.AsyncCaffeineCache;
 import org.example.spi.AutoCache;
+import org.example.spi.CacheKeyType;
+import org.example.spi.CaffeineCache;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.stereotype.Component;
 
 import javax.validation.constraints.NotNull;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +52,21 @@ public class CaffeineCacheAop implements BeanFactoryAware {
         this.beanFactory = beanFactory;
     }
 
+    /**
+     * 方法调用计划缓存
+     */
+    private final ConcurrentMap<Method, AutoCachePlan> planCache = new ConcurrentHashMap<>();
+
+    /**
+     * 未命中合并加载器
+     */
+    private final SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+
+    /**
+     * 提前刷新调度
+     */
+    private final RefreshAheadScheduler refreshAheadScheduler = new RefreshAheadScheduler();
+
     /**
      * 切面方法，优先从缓存中获取，如果缓存中没有，则继续执行原方法逻辑，尝试将方法直接结果更新到本地缓存中
      *
@@ -49,115 +74,415 @@ public class CaffeineCacheAop implements BeanFactoryAware {
      * @return 切面方法执行结果
      */
     @Around("@annotation(org.example.spi.AutoCache)")
-    public Object cacheAround(ProceedingJoinPoint joinPoint) {
+    public Object cacheAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
         Object result = null;
-        CaffeineCacheManager caffeineCacheManager = null;
+        AutoCachePlan plan = null;
+        CaffeineCache cache = null;
         Object key = null;
-        String cacheName = null;
+        boolean batch = false;
+        boolean async = false;
+        boolean bypass = false;
         try {
-            AutoCache autoCacheAnnotation = getMethodAutoCacheAnnotation(joinPoint);
-            AutoCacheParameter parameter = getAutoCacheParameter(autoCacheAnnotation);
-            if (null != parameter) {
-                caffeineCacheManager = (CaffeineCacheManager) beanFactory.getBean(parameter.getCacheManager());
-                key = getMethodParameterObj(joinPoint, parameter.getKeyIndex());
-                cacheName = parameter.getCacheName();
-                Class resultClass = parameter.getResultClass();
-                result = getFromCache(caffeineCacheManager, cacheName, key, resultClass);
+            plan = getPlan(joinPoint);
+            bypass = plan.isCacheable() && CacheSwitch.isBypassed(plan.getCacheName());
+            if (plan.isCacheable() && !bypass) {
+                cache = plan.resolveCache();
+                key = plan.extractKey(args);
+                async = plan.isAsyncResult();
+                batch = plan.isBatchLoad() && null != cache && key instanceof Collection && !((Collection) key).isEmpty();
+                if (!batch && !async) {
+                    result = getFromCache(plan, cache, key);
+                    if (null == result && isCachedAbsent(plan, cache, key)) {
+                        log.debug("CaffeineCacheManager空值缓存命中，key:{}", key);
+                        return plan.emptyResult();
+                    }
+                }
             }
         } catch (Exception e) {
             log.error("CaffeineCacheManager前置处理获取缓存数据异常！", e);
         }
+        if (bypass) {
+            return joinPoint.proceed(args);
+        }
+        if (async) {
+            return asyncLoad(joinPoint, args, plan, cache, key);
+        }
+        if (batch) {
+            return batchLoad(joinPoint, args, plan, cache, (Collection) key);
+        }
         if (null != result) {
-            log.debug("CaffeineCacheManager缓存中获取成功，key:{}", key.toString());
+            log.debug("CaffeineCacheManager缓存中获取成功，key:{}", key);
+            refreshAhead(joinPoint, args, plan, cache, key);
             return result;
         }
 
-        Object[] args = joinPoint.getArgs();
-        result = joinPoint.proceed(args);
+        if (null != plan && plan.isCoalesce() && null != cache && null != key
+                && AutoCachePlan.ResultStrategy.SINGLE == plan.strategyFor(key)) {
+            final AutoCachePlan coalescePlan = plan;
+            final CaffeineCache coalesceCache = cache;
+            final Object coalesceKey = key;
+            return this.singleFlightLoader.load(plan.getCacheName(), key, plan.getCoalesceTimeout(),
+                    () -> loadWithRecheck(joinPoint, args, coalescePlan, coalesceCache, coalesceKey));
+        }
+        return load(joinPoint, args, plan, cache, key);
+    }
+
+    /**
+     * 返回future的方法缓存加载中的future，同一key的并发调用共享一次在途加载，调用线程不阻塞；
+     * 缓存不支持异步或key不是单个key时直接执行原方法
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @param cache 缓存
+     * @param key 缓存key
+     * @return 方法结果future
+     * @throws Throwable 原方法异常
+     */
+    private Object asyncLoad(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan, CaffeineCache cache, Object key) throws Throwable {
+        if (!(cache instanceof AsyncCaffeineCache) || null == key || AutoCachePlan.ResultStrategy.SINGLE != plan.strategyFor(key)) {
+            return proceed(joinPoint, args, plan);
+        }
+        return ((AsyncCaffeineCache) cache).getValueAsync(key, id -> proceedAsync(joinPoint, args, plan));
+    }
+
+    /**
+     * 执行返回future的原方法，加载耗时记录到future完成为止，同步抛出的异常转为失败的future
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @return 方法结果future
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> proceedAsync(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan) {
+        long start = System.nanoTime();
+        CompletableFuture<Object> future;
+        try {
+            Object result = joinPoint.proceed(args);
+            future = null == result ? CompletableFuture.completedFuture(null) : ((CompletionStage<Object>) result).toCompletableFuture();
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+        future.whenComplete((value, throwable) -> plan.getLoadLatency().record(System.nanoTime() - start));
+        return future;
+    }
+
+    /**
+     * 命中后按刷新时间提交后台刷新，后台线程重新执行原方法并带版本回写，调用方继续使用当前值
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @param cache 缓存
+     * @param key 缓存key
+     */
+    private void refreshAhead(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan, CaffeineCache cache, Object key) {
         try {
-            afterProcess(caffeineCacheManager, cacheName, key, result);
+            if (AutoCachePlan.ResultStrategy.SINGLE != plan.strategyFor(key)) {
+                return;
+            }
+            int refreshAfterWrite = plan.effectiveRefreshAfterWrite(cache);
+            if (refreshAfterWrite <= 0) {
+                return;
+            }
+            this.refreshAheadScheduler.refreshIfStale(cache, key, refreshAfterWrite, () -> load(joinPoint, args, plan, cache, key));
+        } catch (Exception e) {
+            log.error("CaffeineCacheManager提交异步刷新异常！", e);
+        }
+    }
+
+    /**
+     * 执行原方法并回写缓存
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @param cache 缓存
+     * @param key 缓存key
+     * @return 方法执行结果
+     * @throws Throwable 原方法异常
+     */
+    private Object load(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan, CaffeineCache cache, Object key) throws Throwable {
+        long version = null == cache ? 0L : cache.getVersion();
+        Object result = proceed(joinPoint, args, plan);
+        try {
+            afterProcess(plan, cache, key, result, version);
         } catch (Exception e) {
             log.error("CaffeineCacheManager后置处理异常！", e);
         }
         return result;
     }
 
+    /**
+     * 执行原方法，可缓存方法记录加载耗时
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @return 方法执行结果
+     * @throws Throwable 原方法异常
+     */
+    private Object proceed(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan) throws Throwable {
+        if (null == plan || !plan.isCacheable()) {
+            return joinPoint.proceed(args);
+        }
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed(args);
+        } finally {
+            plan.getLoadLatency().record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 合并加载时先复查缓存，避免上一轮加载刚写入后再次穿透
+     */
+    private Object loadWithRecheck(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan, CaffeineCache cache, Object key) throws Throwable {
+        Object cached = cache.getValue(key);
+        if (null != cached) {
+            return cached;
+        }
+        if (isCachedAbsent(plan, cache, key)) {
+            return plan.emptyResult();
+        }
+        return load(joinPoint, args, plan, cache, key);
+    }
+
+    /**
+     * 集合key部分命中批量加载，只对未命中的key执行原方法，并将结果按key拆分写入缓存
+     *
+     * @param joinPoint 连接点
+     * @param args 方法参数
+     * @param plan 调用计划
+     * @param cache 缓存
+     * @param ids 缓存ids
+     * @return 合并后的方法结果
+     * @throws Throwable 原方法异常
+     */
+    @SuppressWarnings("unchecked")
+    private Object batchLoad(ProceedingJoinPoint joinPoint, Object[] args, AutoCachePlan plan, CaffeineCache cache, Collection<Object> ids) throws Throwable {
+        Collection<Object> distinctIds = new LinkedHashSet<>(ids);
+        Map<Object, Object> hits = null;
+        try {
+            hits = cache.getValues(distinctIds);
+        } catch (Exception e) {
+            log.error("CaffeineCacheManager批量获取异常，size:{}, keys:{}", ids.size(), ids.toString(), e);
+        }
+        if (null == hits) {
+            hits = Collections.emptyMap();
+        }
+        List<Object> missIds = new ArrayList<>(distinctIds.size() - hits.size());
+        for (Object id : distinctIds) {
+            if (!hits.containsKey(id)) {
+                missIds.add(id);
+            }
+        }
+        Map<Object, Object> loaded = Collections.emptyMap();
+        Object missResult = null;
+        if (!missIds.isEmpty()) {
+            long version = cache.getVersion();
+            missResult = proceed(joinPoint, missIds.size() == distinctIds.size() ? args : plan.withMissIds(args, missIds), plan);
+            Map<Object, Object> split = plan.splitResult(missResult);
+            if (null == split) {
+                log.warn("CaffeineCacheManager批量结果无法按key拆分，cacheName:{}", plan.getCacheName());
+                if (hits.isEmpty()) {
+                    return missResult;
+                }
+                Object merged = mergeUnsplit(plan.newResult(), distinctIds, hits, missResult);
+                return null != merged ? merged : proceed(joinPoint, args, plan);
+            }
+            loaded = split;
+            try {
+                cache.addValues(loaded, version);
+            } catch (Exception e) {
+                log.error("CaffeineCacheManager批量后置处理异常！", e);
+            }
+        }
+        log.debug("CaffeineCacheManager批量部分命中，size:{}, hit:{}, miss:{}", distinctIds.size(), hits.size(), missIds.size());
+        if (hits.isEmpty() && null != missResult) {
+            return missResult;
+        }
+        return mergeResult(plan.newResult(), distinctIds, hits, loaded, cache.getKeyType());
+    }
+
+    /**
+     * 按请求key顺序合并缓存命中值和加载值，加载值的key与请求key按缓存key类型转换后匹配，如Integer和Long
+     *
+     * @param merged 空的结果容器
+     * @param ids 请求key
+     * @param hits 请求key - 缓存命中值
+     * @param loaded 结果元素key - 加载值
+     * @param keyType 缓存key类型
+     * @return 合并后的结果容器
+     */
+    @SuppressWarnings("unchecked")
+    static Object mergeResult(Object merged, Collection<Object> ids, Map<Object, Object> hits, Map<Object, Object> loaded, CacheKeyType keyType) {
+        Map<Object, Object> unmatched = new LinkedHashMap<>(loaded.size() * 2);
+        for (Map.Entry<Object, Object> entry : loaded.entrySet()) {
+            unmatched.put(normalize(keyType, entry.getKey()), entry.getValue());
+        }
+        for (Object id : ids) {
+            Object value = hits.get(id);
+            if (null == value) {
+                value = unmatched.remove(normalize(keyType, id));
+            }
+            if (null == value) {
+                continue;
+            }
+            if (merged instanceof Map) {
+                ((Map<Object, Object>) merged).put(id, value);
+            } else {
+                ((Collection<Object>) merged).add(value);
+            }
+        }
+        if (merged instanceof Map) {
+            ((Map<Object, Object>) merged).putAll(unmatched);
+        } else {
+            ((Collection<Object>) merged).addAll(unmatched.values());
+        }
+        return merged;
+    }
+
+    /**
+     * 加载结果无法拆分时拼接缓存命中值和加载结果：集合结果追加，Map结果合并，加载结果为null时只返回命中值
+     *
+     * @param merged 空的结果容器
+     * @param ids 请求key，命中值按该顺序排列
+     * @param hits 请求key - 缓存命中值
+     * @param missResult 未命中key的加载结果
+     * @return 合并后的结果容器，结果类型无法合并时返回null
+     */
+    @SuppressWarnings("unchecked")
+    static Object mergeUnsplit(Object merged, Collection<Object> ids, Map<Object, Object> hits, Object missResult) {
+        if (merged instanceof Map && (null == missResult || missResult instanceof Map)) {
+            for (Object id : ids) {
+                Object value = hits.get(id);
+                if (null != value) {
+                    ((Map<Object, Object>) merged).put(id, value);
+                }
+            }
+            if (null != missResult) {
+                ((Map<Object, Object>) merged).putAll((Map<Object, Object>) missResult);
+            }
+            return merged;
+        }
+        if (merged instanceof Collection && (null == missResult || missResult instanceof Collection)) {
+            for (Object id : ids) {
+                Object value = hits.get(id);
+                if (null != value) {
+                    ((Collection<Object>) merged).add(value);
+                }
+            }
+            if (null != missResult) {
+                ((Collection<Object>) merged).addAll((Collection<Object>) missResult);
+            }
+            return merged;
+        }
+        return null;
+    }
+
+    /**
+     * 按缓存key类型转换，无法转换时使用原始key
+     */
+    private static Object normalize(CacheKeyType keyType, Object id) {
+        if (null == keyType || null == id) {
+            return id;
+        }
+        Object key = keyType.convert(id);
+        return null == key ? id : key;
+    }
+
     /**
      * 后置处理
      * 
-     * @param caffeineCacheManager 缓存管理
-     * @param cacheName 缓存名称
+     * @param plan 调用计划
+     * @param cache 缓存
      * @param key 缓存key
      * @param result 缓存值
+     * @param version 开始加载时的缓存版本
      */
-    private void afterProcess(CaffeineCacheManager caffeineCacheManager, String cacheName, Object key, Object result) {
-        if (null == caffeineCacheManager || null == cacheName || null == key) {
+    private void afterProcess(AutoCachePlan plan, CaffeineCache cache, Object key, Object result, long version) {
+        if (null == plan || null == cache || null == key) {
+            return;
+        }
+        if (AutoCachePlan.ResultStrategy.SINGLE != plan.strategyFor(key)) {
             return;
         }
-        if (key instanceof Collection) {
+        if (plan.isCacheNull() && plan.isAbsentResult(result)) {
+            cache.addAbsent(key, version);
             return;
         }
-        if (key instanceof Map) {
+        if (null == result) {
             return;
         }
-        caffeineCacheManager.addValue(cacheName, key, result);
+        if (!cache.addValue(key, result, version)) {
+            log.debug("CaffeineCacheManager加载期间key已失效，丢弃回写，key:{}", key);
+        }
+    }
+
+    /**
+     * 判断单个key是否命中空值缓存
+     *
+     * @param plan 调用计划
+     * @param cache 缓存
+     * @param key 缓存key
+     * @return true-已缓存为空值
+     */
+    private boolean isCachedAbsent(AutoCachePlan plan, CaffeineCache cache, Object key) {
+        if (!plan.isCacheNull() || null == cache || null == key) {
+            return false;
+        }
+        return AutoCachePlan.ResultStrategy.SINGLE == plan.strategyFor(key) && cache.isAbsent(key);
     }
 
     /**
-     * 从缓存中获取单个结果
+     * 从缓存中获取结果
      * 
-     * @param caffeineCacheManager 缓存管理器
-     * @param cacheName 缓存名称
+     * @param plan 调用计划
+     * @param cache 缓存
      * @param key 缓存key
-     * @param resultClass 缓存vale类型
      * @return 缓存value
      */
     @SuppressWarnings("unchecked")
-    private Object getFromCache(CaffeineCacheManager caffeineCacheManager, String cacheName, Object key, Class resultClass) {
-        if (null == caffeineCacheManager || null == cacheName || null == key) {
+    private Object getFromCache(AutoCachePlan plan, CaffeineCache cache, Object key) {
+        if (null == cache || null == key) {
             return null;
         }
-        if (key instanceof Collection) {
-            Collection<Object> ids = (Collection<Object>) key;
-            return getForCollection(caffeineCacheManager, cacheName, ids, resultClass);
-        } else if (key instanceof Map) {
-            return null;
-        } else {
-            return caffeineCacheManager.getValue(cacheName, key);
+        switch (plan.strategyFor(key)) {
+            case SINGLE:
+                return cache.getValue(key);
+            case COLLECTION:
+                return getForCollection(plan, cache, (Collection<Object>) key);
+            default:
+                return null;
         }
     }
 
     /**
      * 从缓存集合中获取
      * 
-     * @param caffeineCacheManager 缓存管理器
-     * @param cacheName 缓存名称
+     * @param plan 调用计划
+     * @param cache 缓存
      * @param ids 缓存ids
-     * @param resultClass 缓存value类型
      * @return 缓存value
      */
     @SuppressWarnings("unchecked")
-    private Object getForCollection(CaffeineCacheManager caffeineCacheManager, String cacheName, Collection<Object> ids, Class resultClass) {
-        if (null == resultClass) {
-            return null;
-        }
+    private Object getForCollection(AutoCachePlan plan, CaffeineCache cache, Collection<Object> ids) {
         try {
-            Constructor constructor = resultClass.getConstructor();
-            Object cacheResult = constructor.newInstance();
-            if (cacheResult instanceof Collection) {
-                Collection result = (Collection) cacheResult;
-                Collection<Object> distinctIds = ids.stream().distinct().collect(Collectors.toList());
-                for (Object id : distinctIds) {
-                    Object value = caffeineCacheManager.getValue(cacheName, id);
-                    if (null == value) {
-                        return null;
-                    }
-                    result.add(value);
+            Collection result = (Collection) plan.newResult();
+            Collection<Object> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+            for (Object id : distinctIds) {
+                Object value = cache.getValue(id);
+                if (null == value) {
+                    return null;
                 }
-                log.debug("CaffeineCacheManager批量获取成功，size:{}, keys:{}", ids.size(), ids.toString());
-                return cacheResult;
+                result.add(value);
             }
-            return null;
+            log.debug("CaffeineCacheManager批量获取成功，size:{}, keys:{}", ids.size(), ids.toString());
+            return result;
         } catch (Exception e) {
             log.error("CaffeineCacheManager批量获取异常，size:{}, keys:{}", ids.size(), ids.toString(), e);
             return null;
@@ -165,85 +490,44 @@ public class CaffeineCacheAop implements BeanFactoryAware {
     }
 
     /**
-     * 获取缓存key
-     *
-     * @param joinPoint 方法链接点
-     * @param keyIndex  key位置
-     * @return 缓存key
-     */
-    private Object getMethodParameterObj(ProceedingJoinPoint joinPoint, int keyIndex) {
-        Object[] args = joinPoint.getArgs();
-        int size = args.length;
-        if (keyIndex >= size || keyIndex < 0) {
-            return null;
-        }
-        return args[keyIndex];
-    }
-
-    /**
-     * AutoCache注解转换为参数模型
+     * 获取方法调用计划，首次调用时解析注解并缓存
      *
-     * @param autoCacheAnnotation 注解信息
-     * @return 注解模型
+     * @param joinPoint 连接点
+     * @return 调用计划
      */
-    private AutoCacheParameter getAutoCacheParameter(AutoCache autoCacheAnnotation) {
-        if (null == autoCacheAnnotation) {
-            return null;
-        }
-        String cacheManager = autoCacheAnnotation.cacheManager();
-        String cacheName = autoCacheAnnotation.cacheName();
-        int keyIndex = autoCacheAnnotation.keyIndex();
-        if ("".equals(cacheManager) || "".equals(cacheName) || -1 == keyIndex) {
-            return null;
+    private AutoCachePlan getPlan(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        AutoCachePlan plan = this.planCache.get(method);
+        if (null == plan) {
+            plan = this.planCache.computeIfAbsent(method, this::buildPlan);
         }
-        Class resultClass = autoCacheAnnotation.resultClass();
-        AutoCacheParameter parameter = new AutoCacheParameter();
-        parameter.setCacheManager(cacheManager);
-        parameter.setCacheName(cacheName);
-        parameter.setKeyIndex(keyIndex);
-        parameter.setResultClass(resultClass);
-        return parameter;
+        return plan;
     }
 
     /**
-     * 获取自定义AutoCache注解
+     * AutoCache注解转换为调用计划
      *
-     * @param joinPoint 连接点
-     * @return AutoCache注解，null-异常
+     * @param method 切面方法
+     * @return 调用计划，不可缓存时返回{@link AutoCachePlan#NOT_CACHEABLE}
      */
-    private AutoCache getMethodAutoCacheAnnotation(ProceedingJoinPoint joinPoint) {
+    private AutoCachePlan buildPlan(Method method) {
         AutoCache autoCacheAnnotation;
         try {
-            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-            Method method = signature.getMethod();
             autoCacheAnnotation = method.getAnnotation(AutoCache.class);
         } catch (Exception e) {
             log.error("CaffeineCacheManager获取自动缓存注解失败！", e);
-            return null;
+            return AutoCachePlan.NOT_CACHEABLE;
+        }
+        if (null == autoCacheAnnotation) {
+            return AutoCachePlan.NOT_CACHEABLE;
+        }
+        String cacheManager = autoCacheAnnotation.cacheManager();
+        String cacheName = autoCacheAnnotation.cacheName();
+        int keyIndex = autoCacheAnnotation.keyIndex();
+        if ("".equals(cacheManager) || "".equals(cacheName) || (keyIndex < 0 && 0 == autoCacheAnnotation.keyIndexes().length)) {
+            return AutoCachePlan.NOT_CACHEABLE;
         }
-        return autoCacheAnnotation;
-    }
-
-    /**
-     * 缓存参数类型
-     */
-    @Data
-    private static class AutoCacheParameter {
-        /**
-         * 缓存管理器
-         */
-        private String cacheManager;
-        /**
-         * 缓存名
-         */
-        private String cacheName;
-        /**
-         * 缓存key在方法参数中的位置
-         */
-        private int keyIndex;
-        /**
-         * 缓存Vale类型
-         */
-        private Class resultClass;
+        CaffeineCacheManager caffeineCacheManager = (CaffeineCacheManager) beanFactory.getBean(cacheManager);
+        return AutoCachePlan.build(method, caffeineCacheManager, autoCacheAnnotation);
     }
 }
@@ -0,0 +1,110 @@
+package org.example.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.constant.CaffeineCacheConstants;
+import org.example.spi.CacheKeyType;
+import org.example.spi.CacheValueCodec;
+import org.example.spi.CacheValueSizeEstimator;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 缓存注册配置
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaffeineCacheConfig {
+
+    /**
+     * 缓存名
+     */
+    private String cacheName;
+    /**
+     * 监听路径
+     */
+    private String path;
+    /**
+     * 缓存大小
+     */
+    @Builder.Default
+    private int maxSize = CaffeineCacheConstants.DEFAULT_CAFFEINE_CACHE_MAX_SIZE;
+    /**
+     * 按字节限制的缓存容量，大于0时替代maxSize按条目估算大小淘汰
+     */
+    private long maxWeightBytes;
+    /**
+     * 条目内存估算器，为空时使用{@link DefaultCacheValueSizeEstimator}
+     */
+    private CacheValueSizeEstimator sizeEstimator;
+    /**
+     * 失效时间(秒)
+     */
+    @Builder.Default
+    private int expireAfterWrite = CaffeineCacheConstants.DEFAULT_CAFFEINE_CACHE_EXPIRE_AFTER_WRITE_TIME;
+    /**
+     * 失效时间随机抖动比例，[0, 1)，大于0时每个条目的失效时间在[expireAfterWrite * (1 - expireJitter), expireAfterWrite]内随机
+     */
+    private double expireJitter;
+    /**
+     * 是否开启按条目失效时间，开启后可通过带失效时间的addValue/addValues为单个条目指定失效时间，expireJitter大于0时自动开启
+     */
+    private boolean variableExpiry;
+    /**
+     * 写入多少秒后命中时异步刷新，0-不刷新，需小于失效时间；
+     * 对该缓存上所有未单独配置的@AutoCache方法生效，刷新线程不带调用方的事务、安全上下文和请求作用域
+     */
+    private int refreshAfterWrite;
+    /**
+     * key类型
+     */
+    @Builder.Default
+    private CacheKeyType keyType = CacheKeyType.STRING;
+    /**
+     * 空值缓存失效时间(秒)，@AutoCache开启cacheNull时使用，应短于正常值的失效时间
+     */
+    @Builder.Default
+    private int absentExpireAfterWrite = CaffeineCacheConstants.DEFAULT_ABSENT_CACHE_EXPIRE_AFTER_WRITE_TIME;
+    /**
+     * 空值缓存最大数量
+     */
+    @Builder.Default
+    private int absentMaxSize = CaffeineCacheConstants.DEFAULT_ABSENT_CACHE_MAX_SIZE;
+    /**
+     * 是否缓存解码后的对象，开启后getValueAndFormat命中时不再重复反序列化，解码对象在调用方之间共享，不应修改
+     */
+    private boolean decodeCache;
+    /**
+     * 缓存值压缩编解码器，为空时不压缩，可使用{@link DeflateCacheValueCodec#INSTANCE}
+     */
+    private CacheValueCodec valueCodec;
+    /**
+     * 压缩阈值(字节)，超过阈值的String/byte[]压缩保存，String按字符数估算
+     */
+    @Builder.Default
+    private int compressThreshold = CaffeineCacheConstants.DEFAULT_COMPRESS_THRESHOLD;
+    /**
+     * 缺失率曲线采样率，(0, 1]时开启采样，配合{@link CacheSizeTuner}按曲线调整容量，0-不采样
+     */
+    private double sampleRate;
+    /**
+     * 是否基于AsyncCache创建，开启后异步接口共享同一key的在途加载
+     */
+    private boolean async;
+    /**
+     * 淘汰清理、删除通知及异步完成回调的线程池，为空时使用{@link CacheExecutors#defaultExecutor()}
+     */
+    private Executor executor;
+    /**
+     * 提前刷新等阻塞加载的线程池，为空时使用{@link CacheExecutors#setDefaultLoaderExecutor(Executor)}设置的默认加载线程池，
+     * 均未设置时使用切面的刷新线程池，可使用{@link CacheExecutors#loader()}以虚拟线程加载
+     */
+    private Executor loaderExecutor;
+}
@@ -24,9 +24,70 @@ public class CaffeineCacheConstants {
     public static int DEFAULT_CAFFEINE_CACHE_MAX_SIZE = 100;
     public static int DEFAULT_CAFFEINE_CACHE_MAX_SIZE_EXTREME = 5000;
 
+    /**
+     * 空值缓存默认配置
+     */
+    public static final int DEFAULT_ABSENT_CACHE_EXPIRE_AFTER_WRITE_TIME = 1;
+    public static final int DEFAULT_ABSENT_CACHE_MAX_SIZE = 1000;
+
+    /**
+     * 缓存值压缩默认阈值(字节)
+     */
+    public static int DEFAULT_COMPRESS_THRESHOLD = 1024;
+
     /**
      * 默认延时
      */
     public static int DEFAULT_DELAY_TIME = 500;
+
+    /**
+     * 合并加载默认等待时间(毫秒)，注解默认值需为编译期常量
+     */
+    public static final int DEFAULT_COALESCE_TIMEOUT = 500;
+
+    /**
+     * 异步刷新线程数及排队上限
+     */
+    public static int DEFAULT_REFRESH_THREADS = 4;
+    public static int DEFAULT_REFRESH_QUEUE_SIZE = 1024;
+
+    /**
+     * 共享维护线程数及排队上限
+     */
+    public static int DEFAULT_MAINTENANCE_THREADS = 2;
+    public static int DEFAULT_MAINTENANCE_QUEUE_SIZE = 1024;
+
+    /**
+     * 不支持虚拟线程时共享加载线程数及排队上限
+     */
+    public static int DEFAULT_LOADER_THREADS = 64;
+    public static int DEFAULT_LOADER_QUEUE_SIZE = 1024;
+
+    /**
+     * 失效记录保留时间(秒)，需覆盖最长的加载耗时
+     */
+    public static int DEFAULT_INVALIDATION_RETENTION = 60;
+
+    /**
+     * 按字节限制容量时，失效记录占用字节上限为缓存字节上限的1/N
+     */
+    public static int DEFAULT_INVALIDATION_WEIGHT_DIVISOR = 16;
+
+    /**
+     * 异步写入队列长度、每批最大写入数及队列满时最长等待时间(毫秒)
+     */
+    public static int DEFAULT_WRITE_BEHIND_QUEUE_SIZE = 4096;
+    public static int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 256;
+    public static int DEFAULT_WRITE_BEHIND_BLOCK_TIMEOUT = 100;
+
+    /**
+     * 监控装饰器是否默认记录读取延迟直方图
+     */
+    public static boolean DEFAULT_RECORD_LATENCY = true;
+
+    /**
+     * 监控累计数据上报间隔(秒)
+     */
+    public static int DEFAULT_MONITOR_FLUSH_INTERVAL = 10;
     
 }
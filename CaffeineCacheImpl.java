@@ -1,16 +1,31 @@
 package org.example.core;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+import org.example.spi.AsyncCaffeineCache;
+import org.example.spi.CacheKeyType;
+import org.example.spi.CacheValueSizeEstimator;
 import org.example.spi.CaffeineCache;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * caffeineCache实现
@@ -19,7 +34,15 @@ import java.util.concurrent.TimeUnit;
  * @date 2019/11/15
  */
 @Slf4j
-public class CaffeineCacheImpl implements CaffeineCache {
+public class CaffeineCacheImpl implements AsyncCaffeineCache {
+
+    private static final String WEIGHTED_STAT_FORMAT = "%s, weightedSize:(%s), maxWeight:(%s)";
+    private static final String RESIZE_STAT_FORMAT = "%s, resize:(%s)";
+    private static final String COMPRESS_STAT_FORMAT = "%s, %s";
+    /**
+     * 估算平均条目大小时抽取的条目数
+     */
+    private static final int ENTRY_SIZE_SAMPLES = 16;
 
     /**
      * 缓存名
@@ -32,29 +55,151 @@ public class CaffeineCacheImpl implements CaffeineCache {
     /**
      * 缓存大小
      */
-    private int maxSize;
+    private volatile int maxSize;
+    /**
+     * 按字节限制的缓存容量，0-按条目数限制
+     */
+    private volatile long maxWeightBytes;
     /**
      * 失效时间
      */
-    private int expireAfterWrite;
+    private volatile int expireAfterWrite;
+    /**
+     * 按条目失效策略，未开启按条目失效时间时为null
+     */
+    private JitteredExpiry expiry;
+    /**
+     * 异步刷新时间
+     */
+    private int refreshAfterWrite;
+    /**
+     * key类型
+     */
+    private CacheKeyType keyType;
+    /**
+     * 是否缓存解码后的对象
+     */
+    private boolean decodeCache;
+    /**
+     * 阻塞加载线程池，未配置时为null
+     */
+    private Executor loaderExecutor;
     /**
      * caffeine缓存
      */
-    private Cache<String, Object> cache;
+    private Cache<Object, Object> cache;
+    /**
+     * caffeine异步缓存，未开启异步时为null，开启时cache为其同步视图
+     */
+    private AsyncCache<Object, Object> asyncCache;
+    /**
+     * 版本时钟，每次删除递增
+     */
+    private final AtomicLong versionClock = new AtomicLong();
+    /**
+     * 版本下限，低于该版本的带版本写入一律丢弃，清空缓存或失效记录被淘汰时推进
+     */
+    private final AtomicLong versionFloor = new AtomicLong();
+    /**
+     * 失效记录：缓存key - 最近一次删除时的版本
+     */
+    private Cache<Object, Long> invalidations;
+    /**
+     * 空值标记缓存，开启空值缓存后创建
+     */
+    private volatile Cache<Object, Object> absentCache;
+    /**
+     * 空值标记失效时间(秒)
+     */
+    private int absentExpireAfterWrite;
+    /**
+     * 空值标记最大数量
+     */
+    private int absentMaxSize;
+    /**
+     * 条目内存估算器
+     */
+    private CacheValueSizeEstimator sizeEstimator;
+    /**
+     * 缓存值压缩器，未开启压缩时为null
+     */
+    private ValueCompressor compressor;
+    /**
+     * 缺失率曲线采样器，未开启采样时为null，容量调整后以新容量为基准重建
+     */
+    private volatile MissRatioCurveSampler sampler;
+    /**
+     * 最近一次容量调整说明
+     */
+    private volatile String resizeDecision;
 
     public CaffeineCacheImpl(String cacheName, int maxSize, int expireAfterWrite) {
-        this.cacheName = cacheName;
-        this.maxSize = maxSize;
-        this.expireAfterWrite = expireAfterWrite;
-        this.cache = Caffeine.newBuilder().maximumSize(this.maxSize).recordStats().expireAfterWrite(this.expireAfterWrite, TimeUnit.SECONDS).build();
+        this(CaffeineCacheConfig.builder().cacheName(cacheName).maxSize(maxSize).expireAfterWrite(expireAfterWrite).build());
     }
 
     public CaffeineCacheImpl(String cacheName, String path, int maxSize, int expireAfterWrite) {
-        this.cacheName = cacheName;
-        this.path = path;
-        this.maxSize = maxSize;
-        this.expireAfterWrite = expireAfterWrite;
-        this.cache = Caffeine.newBuilder().maximumSize(this.maxSize).recordStats().expireAfterWrite(this.expireAfterWrite, TimeUnit.SECONDS).build();
+        this(CaffeineCacheConfig.builder().cacheName(cacheName).path(path).maxSize(maxSize).expireAfterWrite(expireAfterWrite).build());
+    }
+
+    public CaffeineCacheImpl(CaffeineCacheConfig config) {
+        this.cacheName = config.getCacheName();
+        this.path = config.getPath();
+        this.maxSize = config.getMaxSize();
+        this.expireAfterWrite = config.getExpireAfterWrite();
+        this.refreshAfterWrite = config.getRefreshAfterWrite();
+        this.keyType = null == config.getKeyType() ? CacheKeyType.STRING : config.getKeyType();
+        this.decodeCache = config.isDecodeCache();
+        this.absentExpireAfterWrite = config.getAbsentExpireAfterWrite();
+        this.absentMaxSize = config.getAbsentMaxSize();
+        this.maxWeightBytes = config.getMaxWeightBytes();
+        this.sizeEstimator = null == config.getSizeEstimator() ? DefaultCacheValueSizeEstimator.INSTANCE : config.getSizeEstimator();
+        if (null != config.getValueCodec()) {
+            this.compressor = new ValueCompressor(this.cacheName, config.getValueCodec(), config.getCompressThreshold());
+        }
+        Executor executor = null == config.getExecutor() ? CacheExecutors.defaultExecutor() : config.getExecutor();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats()
+                .executor(CacheExecutors.monitored(this.cacheName, CacheLatencyMonitor.OP_MAINTENANCE_QUEUE, executor));
+        Executor loaderExecutor = null == config.getLoaderExecutor() ? CacheExecutors.defaultLoaderExecutor() : config.getLoaderExecutor();
+        if (null != loaderExecutor) {
+            this.loaderExecutor = CacheExecutors.monitored(this.cacheName, CacheLatencyMonitor.OP_LOADER_QUEUE, loaderExecutor);
+        }
+        if (config.isVariableExpiry() || config.getExpireJitter() > 0) {
+            this.expiry = new JitteredExpiry(TimeUnit.SECONDS.toNanos(this.expireAfterWrite), config.getExpireJitter());
+            builder.expireAfter(this.expiry);
+        } else {
+            builder.expireAfterWrite(this.expireAfterWrite, TimeUnit.SECONDS);
+        }
+        if (this.maxWeightBytes > 0) {
+            builder.maximumWeight(this.maxWeightBytes).weigher(this::weigh);
+        } else {
+            builder.maximumSize(this.maxSize);
+        }
+        if (config.isAsync()) {
+            this.asyncCache = builder.buildAsync();
+            this.cache = this.asyncCache.synchronous();
+        } else {
+            this.cache = builder.build();
+        }
+        if (config.getSampleRate() > 0) {
+            this.sampler = new MissRatioCurveSampler(this.maxWeightBytes > 0 ? this.maxWeightBytes : this.maxSize, config.getSampleRate());
+        }
+        Caffeine<Object, Object> invalidationBuilder = Caffeine.newBuilder();
+        if (this.maxWeightBytes > 0) {
+            // 按字节限制时maxSize不代表条目数，失效记录同样按字节限制，避免条目数远超maxSize时失效记录过早淘汰
+            invalidationBuilder.maximumWeight(invalidationCapacity())
+                    .weigher((Object key, Object version) -> this.sizeEstimator.estimate(key, version));
+        } else {
+            invalidationBuilder.maximumSize(invalidationCapacity());
+        }
+        this.invalidations = invalidationBuilder
+                .expireAfterWrite(Math.max(this.expireAfterWrite, CaffeineCacheConstants.DEFAULT_INVALIDATION_RETENTION), TimeUnit.SECONDS)
+                .executor(Runnable::run)
+                .removalListener((Object key, Long version, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && null != version) {
+                        this.versionFloor.accumulateAndGet(version, Math::max);
+                    }
+                })
+                .build();
     }
 
     @Override
@@ -78,13 +223,223 @@ public class CaffeineCacheImpl implements CaffeineCache {
     }
 
     @Override
-    public Cache getCache() {
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0 || null == this.cache) {
+            return;
+        }
+        if (this.maxWeightBytes > 0) {
+            log.warn("缓存按字节限制容量, 忽略maxSize调整, cacheName:{}, maxSize:{}", this.cacheName, maxSize);
+            return;
+        }
+        this.cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maxSize));
+        log.info("调整缓存最大数量, cacheName:{}, maxSize:{}->{}", this.cacheName, this.maxSize, maxSize);
+        this.maxSize = maxSize;
+        resizeInvalidations();
+        rebaseSampler(maxSize);
+    }
+
+    /**
+     * 运行时调整按字节限制的缓存容量，仅对创建时按字节限制的缓存生效
+     *
+     * @param maxWeightBytes 缓存容量(字节)
+     */
+    public void setMaxWeightBytes(long maxWeightBytes) {
+        if (maxWeightBytes <= 0 || this.maxWeightBytes <= 0 || null == this.cache) {
+            return;
+        }
+        this.cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maxWeightBytes));
+        log.info("调整缓存容量, cacheName:{}, maxWeightBytes:{}->{}", this.cacheName, this.maxWeightBytes, maxWeightBytes);
+        this.maxWeightBytes = maxWeightBytes;
+        resizeInvalidations();
+        rebaseSampler(maxWeightBytes);
+    }
+
+    /**
+     * 以新容量为基准重建采样器，候选容量始终围绕当前容量
+     *
+     * @param capacity 当前容量上限
+     */
+    private void rebaseSampler(long capacity) {
+        MissRatioCurveSampler current = this.sampler;
+        if (null != current) {
+            this.sampler = new MissRatioCurveSampler(capacity, current.getRate());
+        }
+    }
+
+    /**
+     * 失效记录容量上限，按条目数限制时不小于缓存最大数量，按字节限制时为缓存容量的一部分
+     *
+     * @return 容量上限，与失效记录淘汰策略同单位
+     */
+    private long invalidationCapacity() {
+        if (this.maxWeightBytes > 0) {
+            return Math.max(1L, this.maxWeightBytes / CaffeineCacheConstants.DEFAULT_INVALIDATION_WEIGHT_DIVISOR);
+        }
+        return Math.max(this.maxSize, CaffeineCacheConstants.DEFAULT_CAFFEINE_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * 缓存容量调整后同步调整失效记录容量
+     */
+    private void resizeInvalidations() {
+        long capacity = invalidationCapacity();
+        this.invalidations.policy().eviction().ifPresent(eviction -> eviction.setMaximum(capacity));
+    }
+
+    /**
+     * 固定失效时间时已有条目按写入时间重新计算；按条目失效时间时只影响之后写入的条目
+     */
+    @Override
+    public void setExpireAfterWrite(int expireAfterWrite) {
+        if (expireAfterWrite <= 0 || null == this.cache) {
+            return;
+        }
+        if (null != this.expiry) {
+            this.expiry.setExpireNanos(TimeUnit.SECONDS.toNanos(expireAfterWrite));
+        } else {
+            this.cache.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(expireAfterWrite, TimeUnit.SECONDS));
+        }
+        log.info("调整缓存失效时间, cacheName:{}, expireAfterWrite:{}->{}", this.cacheName, this.expireAfterWrite, expireAfterWrite);
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    @Override
+    public Executor getLoaderExecutor() {
+        return this.loaderExecutor;
+    }
+
+    @Override
+    public int getRefreshAfterWrite() {
+        return this.refreshAfterWrite;
+    }
+
+    @Override
+    public <K> long getAge(K id, TimeUnit unit) {
+        if (null == id || null == this.cache) {
+            return -1L;
+        }
+        Object key = toKey(id);
+        if (null == key) {
+            return -1L;
+        }
+        Policy<Object, Object> policy = this.cache.policy();
+        if (null == this.expiry) {
+            return policy.expireAfterWrite()
+                    .map(expiration -> expiration.ageOf(key, unit).orElse(-1L))
+                    .orElse(-1L);
+        }
+        // 按条目失效时剩余时间含抖动或单独指定的失效时间，无法折算写入时间，由条目记录写入时间
+        Object stored = this.cache.asMap().get(key);
+        if (!(stored instanceof CacheEntry)) {
+            return -1L;
+        }
+        return unit.convert(Math.max(0L, System.nanoTime() - ((CacheEntry) stored).getWriteNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 开启解码缓存或值压缩时，值为包装对象，需通过{@link #toValue(Object)}还原
+     */
+    @Override
+    public Cache<Object, Object> getCache() {
         return this.cache;
     }
 
+    /**
+     * 将{@link #getCache()}中的存储形式还原为写入时的原始值
+     *
+     * @param stored 底层缓存中的值
+     * @return 原始值
+     */
+    public static Object toValue(Object stored) {
+        return CacheEntry.unwrap(stored);
+    }
+
+    @Override
+    public AsyncCache getAsyncCache() {
+        return this.asyncCache;
+    }
+
+    @Override
+    public CacheKeyType getKeyType() {
+        return this.keyType;
+    }
+
     @Override
     public String getCacheStat() {
-        return this.cache.stats().toString();
+        String stat = this.maxWeightBytes <= 0 ? this.cache.stats().toString()
+                : String.format(WEIGHTED_STAT_FORMAT, this.cache.stats(), getWeightedSize(this.cache), getCapacity());
+        if (null != this.compressor) {
+            stat = String.format(COMPRESS_STAT_FORMAT, stat, this.compressor.describe());
+        }
+        String decision = this.resizeDecision;
+        return null == decision ? stat : String.format(RESIZE_STAT_FORMAT, stat, decision);
+    }
+
+    /**
+     * 是否按字节限制容量
+     *
+     * @return true-按字节，false-按条目数
+     */
+    boolean isWeighted() {
+        return this.maxWeightBytes > 0;
+    }
+
+    /**
+     * 获取缺失率曲线采样器
+     *
+     * @return 采样器，未开启采样时为null
+     */
+    MissRatioCurveSampler getSampler() {
+        return this.sampler;
+    }
+
+    /**
+     * 获取当前容量上限，与淘汰策略同单位
+     *
+     * @return 容量上限
+     */
+    long getCapacity() {
+        return this.cache.policy().eviction()
+                .map(eviction -> eviction.getMaximum())
+                .orElse((long) this.maxSize);
+    }
+
+    /**
+     * 抽取最热的若干条目估算平均条目字节数，用于将条目数容量折算为内存
+     *
+     * @return 平均条目字节数，缓存为空时为0
+     */
+    long estimateEntryBytes() {
+        Map<Object, Object> hottest = this.cache.policy().eviction()
+                .map(eviction -> eviction.hottest(ENTRY_SIZE_SAMPLES))
+                .orElseGet(Collections::emptyMap);
+        if (hottest.isEmpty()) {
+            return 0L;
+        }
+        long total = 0L;
+        for (Map.Entry<Object, Object> entry : hottest.entrySet()) {
+            total += weigh(entry.getKey(), entry.getValue());
+        }
+        return total / hottest.size();
+    }
+
+    /**
+     * 调整运行中缓存的容量上限
+     *
+     * @param capacity 新容量上限，与淘汰策略同单位
+     * @param decision 调整说明，通过{@link #getCacheStat()}输出
+     */
+    void resize(long capacity, String decision) {
+        this.cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(capacity));
+        if (this.maxWeightBytes > 0) {
+            this.maxWeightBytes = capacity;
+        } else {
+            this.maxSize = (int) Math.min(Integer.MAX_VALUE, capacity);
+        }
+        resizeInvalidations();
+        rebaseSampler(capacity);
+        this.resizeDecision = decision;
+        log.info("调整缓存容量, cacheName:{}, {}", this.cacheName, decision);
     }
 
     @Override
@@ -93,20 +448,78 @@ public class CaffeineCacheImpl implements CaffeineCache {
             return null;
         }
         try {
-            String coveredId = String.valueOf(id);
-            return this.cache.getIfPresent(coveredId);
+            Object key = toKey(id);
+            if (null == key) {
+                return null;
+            }
+            Object stored = this.cache.getIfPresent(key);
+            sample(key, stored);
+            return CacheEntry.unwrap(stored);
         } catch (Exception e) {
             log.error("获取缓存异常, id={}", id, e);
             return null;
         }
     }
 
+    /**
+     * long型key读取，调用方不装箱，key直接按key类型转换，LONG类型只在Long缓存范围外分配一次，STRING类型不再经过装箱
+     *
+     * @param id 缓存key
+     * @return 缓存值
+     */
+    @Override
+    public Object getValueByLong(long id) {
+        Object key = toLongKey(id);
+        if (null == key || null == this.cache) {
+            return null;
+        }
+        Object stored = this.cache.getIfPresent(key);
+        sample(key, stored);
+        return CacheEntry.unwrap(stored);
+    }
+
+    /**
+     * long型key写入，key转换同{@link #getValueByLong(long)}
+     *
+     * @param id 缓存key
+     * @param value 缓存值
+     */
+    @Override
+    public void addValueByLong(long id, Object value) {
+        Object key = toLongKey(id);
+        if (null == key || null == this.cache || null == value) {
+            return;
+        }
+        this.cache.put(key, wrap(value));
+        clearAbsent(key);
+    }
+
+    /**
+     * long型key删除，key转换同{@link #getValueByLong(long)}
+     *
+     * @param id 缓存key
+     */
+    @Override
+    public void removeKeyByLong(long id) {
+        Object key = toLongKey(id);
+        if (null == key || null == this.cache) {
+            return;
+        }
+        markInvalidated(key);
+        this.cache.invalidate(key);
+        clearAbsent(key);
+    }
+
     @Override
     public <K> Map<K, Object> getValues(Collection<K> ids) {
         if (null == ids || null == this.cache) {
             return null;
         }
-        return batchGetValues(ids);
+        Map<K, Object> result = batchGetValues(ids);
+        if (this.decodeCache || null != this.compressor || null != this.expiry) {
+            result.replaceAll((key, value) -> CacheEntry.unwrap(value));
+        }
+        return result;
     }
 
     @Override
@@ -116,11 +529,15 @@ public class CaffeineCacheImpl implements CaffeineCache {
         }
         Object value = null;
         try {
-            String coveredId = String.valueOf(id);
-            value = this.cache.getIfPresent(coveredId);
-            return JsonUtils.findObject(String.valueOf(value), formatClass);
+            Object key = toKey(id);
+            if (null == key) {
+                return null;
+            }
+            value = this.cache.getIfPresent(key);
+            sample(key, value);
+            return format(value, formatClass);
         } catch (Exception e) {
-            log.error("[JsonUtils#findObject] 反序列化json失败, jsonStr={}, class name={}", value, formatClass.getName());
+            log.error("[JsonUtils#findObject] 反序列化json失败, jsonStr={}, class name={}", CacheEntry.unwrap(value), formatClass.getName());
             return null;
         }
     }
@@ -130,14 +547,13 @@ public class CaffeineCacheImpl implements CaffeineCache {
         if (null == ids || null == this.cache) {
             return null;
         }
-        Map<K, T> formatResult = new HashMap<>(ids.size());
+        Map<K, T> formatResult = new HashMap<>(mapCapacity(ids.size()));
         try {
             Map<K, Object> result = batchGetValues(ids);
-            for (K key : result.keySet()) {
-                Object value = result.get(key);
-                T resultInstance = JsonUtils.findObject(String.valueOf(value), formatClass);
+            for (Map.Entry<K, Object> entry : result.entrySet()) {
+                T resultInstance = format(entry.getValue(), formatClass);
                 if (null != resultInstance) {
-                    formatResult.put(key, resultInstance);
+                    formatResult.put(entry.getKey(), resultInstance);
                 }
             }
         } catch (Exception e) {
@@ -146,13 +562,112 @@ public class CaffeineCacheImpl implements CaffeineCache {
         return formatResult;
     }
 
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id) {
+        if (null == this.asyncCache) {
+            return AsyncCaffeineCache.super.getValueAsync(id);
+        }
+        Object key = null == id ? null : toKey(id);
+        if (null == key) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Object> future = this.asyncCache.getIfPresent(key);
+        if (null == future) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return future.handle((value, throwable) -> null == throwable ? CacheEntry.unwrap(value) : null);
+    }
+
+    @Override
+    public <K> CompletableFuture<Map<K, Object>> getValuesAsync(Collection<K> ids) {
+        if (null == this.asyncCache) {
+            return AsyncCaffeineCache.super.getValuesAsync(ids);
+        }
+        if (null == ids) {
+            return CompletableFuture.completedFuture(new HashMap<>(4));
+        }
+        Map<K, CompletableFuture<Object>> futures = new HashMap<>(mapCapacity(ids.size()));
+        for (K id : ids) {
+            Object key = null == id ? null : toKey(id);
+            if (null == key) {
+                continue;
+            }
+            CompletableFuture<Object> future = this.asyncCache.getIfPresent(key);
+            if (null != future) {
+                futures.put(id, future);
+            }
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).handle((ignore, throwable) -> {
+            Map<K, Object> result = new HashMap<>(mapCapacity(futures.size()));
+            for (Map.Entry<K, CompletableFuture<Object>> entry : futures.entrySet()) {
+                CompletableFuture<Object> future = entry.getValue();
+                if (future.isCompletedExceptionally()) {
+                    continue;
+                }
+                Object value = CacheEntry.unwrap(future.join());
+                if (null != value) {
+                    result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        Object cacheKey = null == this.asyncCache || null == id ? null : toKey(id);
+        if (null == cacheKey) {
+            return AsyncCaffeineCache.super.getValueAsync(id, loader);
+        }
+        // 先放入占位future再在Caffeine的compute之外执行加载，避免原方法在哈希桶锁内执行；加载期间删除key时占位future随之移除
+        CompletableFuture<Object> placeholder = new CompletableFuture<>();
+        CompletableFuture<Object> existing = this.asyncCache.asMap().putIfAbsent(cacheKey, placeholder);
+        if (null != existing) {
+            return existing.thenApply(CacheEntry::unwrap);
+        }
+        loadAsync(id, loader).whenComplete((value, throwable) -> {
+            if (null != throwable) {
+                placeholder.completeExceptionally(throwable);
+            } else {
+                placeholder.complete(value);
+            }
+        });
+        return placeholder.thenApply(CacheEntry::unwrap);
+    }
+
+    /**
+     * 执行异步加载，同步抛出的异常转为失败的future，由AsyncCache移除该条目
+     *
+     * @param id 缓存key
+     * @param loader 加载逻辑
+     * @param <K> key类型
+     * @return 写入AsyncCache的future
+     */
+    private <K> CompletableFuture<Object> loadAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        try {
+            CompletableFuture<Object> future = loader.apply(id);
+            if (null == future) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return future.thenApply(value -> null == value ? null : wrap(value));
+        } catch (RuntimeException e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
     @Override
     public <K> void addValue(K id, Object value) {
         if (null == id || null == this.cache || null == value) {
             return;
         }
-        String coveredId = String.valueOf(id);
-        this.cache.put(coveredId, value);
+        Object key = toKey(id);
+        if (null == key) {
+            return;
+        }
+        this.cache.put(key, wrap(value));
+        clearAbsent(key);
     }
 
     @Override
@@ -160,44 +675,436 @@ public class CaffeineCacheImpl implements CaffeineCache {
         if (null == values || null == this.cache) {
             return 0;
         }
+        Map<Object, Object> converted = new HashMap<>(mapCapacity(values.size()));
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            K key = entry.getKey();
+            V value = entry.getValue();
+            Object cacheKey = null == key || null == value ? null : toKey(key);
+            if (null == cacheKey) {
+                continue;
+            }
+            converted.put(cacheKey, wrap(value));
+        }
+        this.cache.putAll(converted);
+        if (null != this.absentCache) {
+            this.absentCache.invalidateAll(converted.keySet());
+        }
+        return converted.size();
+    }
+
+    @Override
+    public <K> void addValue(K id, Object value, long expireAfterWrite, TimeUnit unit) {
+        if (null == id || null == this.cache || null == value) {
+            return;
+        }
+        Object key = toKey(id);
+        if (null == key) {
+            return;
+        }
+        putWithExpiry(key, wrap(value), unit.toNanos(expireAfterWrite));
+        clearAbsent(key);
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long expireAfterWrite, TimeUnit unit) {
+        if (null == values || null == this.cache) {
+            return 0;
+        }
+        long nanos = unit.toNanos(expireAfterWrite);
         int size = 0;
-        for (K key : values.keySet()) {
-            V value = values.get(key);
-            String coveredId = String.valueOf(key);
-            if (null == key || null == value) {
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            K key = entry.getKey();
+            V value = entry.getValue();
+            Object cacheKey = null == key || null == value ? null : toKey(key);
+            if (null == cacheKey) {
                 continue;
             }
-            this.cache.put(coveredId, value);
+            putWithExpiry(cacheKey, wrap(value), nanos);
+            clearAbsent(cacheKey);
             size++;
         }
         return size;
     }
 
+    @Override
+    public long getVersion() {
+        return this.versionClock.get();
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long version) {
+        if (null == id || null == this.cache || null == value) {
+            return false;
+        }
+        Object key = toKey(id);
+        return null != key && putIfNotInvalidated(this.cache, key, wrap(value), version);
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long expireAfterWrite, TimeUnit unit, long version) {
+        if (null == id || null == this.cache || null == value) {
+            return false;
+        }
+        Object key = toKey(id);
+        return null != key && putIfNotInvalidated(this.cache, key, wrap(value), version, unit.toNanos(expireAfterWrite));
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long version) {
+        if (null == values || null == this.cache) {
+            return 0;
+        }
+        int size = 0;
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            K key = entry.getKey();
+            V value = entry.getValue();
+            Object cacheKey = null == key || null == value ? null : toKey(key);
+            if (null != cacheKey && putIfNotInvalidated(this.cache, cacheKey, wrap(value), version)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
     @Override
     public void removeKey(Object id) {
         if (null == id || null == this.cache) {
             return;
         }
-        String coveredId = String.valueOf(id);
-        this.cache.invalidate(coveredId);
+        Object key = toKey(id);
+        if (null == key) {
+            return;
+        }
+        markInvalidated(key);
+        this.cache.invalidate(key);
+        clearAbsent(key);
+    }
+
+    @Override
+    public <K> void removeKeys(Collection<K> ids) {
+        if (null == ids || ids.isEmpty() || null == this.cache) {
+            return;
+        }
+        List<Object> keys = new ArrayList<>(ids.size());
+        for (K id : ids) {
+            Object key = null == id ? null : toKey(id);
+            if (null != key) {
+                markInvalidated(key);
+                keys.add(key);
+            }
+        }
+        this.cache.invalidateAll(keys);
+        if (null != this.absentCache) {
+            this.absentCache.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        if (null == this.cache) {
+            return;
+        }
+        this.versionFloor.accumulateAndGet(this.versionClock.incrementAndGet(), Math::max);
+        this.cache.invalidateAll();
+        this.invalidations.invalidateAll();
+        if (null != this.absentCache) {
+            this.absentCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 释放本缓存持有的延迟直方图，切面、刷新线程池等其他持有者的直方图保留
+     */
+    @Override
+    public void close() {
+        CacheLatencyMonitor.release(this.cacheName, CacheLatencyMonitor.OP_MAINTENANCE_QUEUE);
+        if (null != this.loaderExecutor) {
+            CacheLatencyMonitor.release(this.cacheName, CacheLatencyMonitor.OP_LOADER_QUEUE);
+        }
+        if (null != this.compressor) {
+            CacheLatencyMonitor.release(this.cacheName, CacheLatencyMonitor.OP_DECOMPRESS);
+        }
+    }
+
+    @Override
+    public synchronized void enableAbsentCache() {
+        if (null != this.absentCache) {
+            return;
+        }
+        this.absentCache = Caffeine.newBuilder().maximumSize(this.absentMaxSize)
+                .expireAfterWrite(this.absentExpireAfterWrite, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    public <K> boolean isAbsent(K id) {
+        Cache<Object, Object> absent = this.absentCache;
+        if (null == id || null == absent) {
+            return false;
+        }
+        Object key = toKey(id);
+        return null != key && null != absent.getIfPresent(key);
+    }
+
+    @Override
+    public <K> boolean addAbsent(K id, long version) {
+        Cache<Object, Object> absent = this.absentCache;
+        if (null == id || null == absent) {
+            return false;
+        }
+        Object key = toKey(id);
+        return null != key && putIfNotInvalidated(absent, key, Boolean.TRUE, version);
+    }
+
+    /**
+     * 记录失效版本，需在删除缓存之前调用，与带版本写入在同一key上互斥
+     *
+     * @param key 缓存key
+     */
+    private void markInvalidated(Object key) {
+        this.invalidations.asMap().compute(key, (k, previous) -> this.versionClock.incrementAndGet());
+    }
+
+    /**
+     * 加载开始后key未被删除时写入缓存，写入值或空值标记时互相覆盖
+     *
+     * @param target 写入的缓存，值缓存或空值标记缓存
+     * @param key 缓存key
+     * @param value 缓存值
+     * @param version 开始加载时的缓存版本
+     * @return true-已写入
+     */
+    private boolean putIfNotInvalidated(Cache<Object, Object> target, Object key, Object value, long version) {
+        return putIfNotInvalidated(target, key, value, version, 0L);
+    }
+
+    /**
+     * 加载开始后key未被删除时按指定失效时间写入缓存
+     *
+     * @param target 写入的缓存，值缓存或空值标记缓存
+     * @param key 缓存key
+     * @param value 缓存值
+     * @param version 开始加载时的缓存版本
+     * @param expireNanos 写入值缓存时的失效时间(纳秒)，0-使用统一失效时间
+     * @return true-已写入
+     */
+    private boolean putIfNotInvalidated(Cache<Object, Object> target, Object key, Object value, long version, long expireNanos) {
+        if (version < this.versionFloor.get()) {
+            return false;
+        }
+        boolean[] written = new boolean[1];
+        this.invalidations.asMap().compute(key, (k, invalidatedVersion) -> {
+            if (null == invalidatedVersion || invalidatedVersion <= version) {
+                if (target == this.cache && expireNanos > 0) {
+                    putWithExpiry(k, value, expireNanos);
+                } else {
+                    target.put(k, value);
+                }
+                if (target == this.cache) {
+                    clearAbsent(k);
+                } else {
+                    this.cache.invalidate(k);
+                }
+                written[0] = true;
+            }
+            return invalidatedVersion;
+        });
+        return written[0];
+    }
+
+    /**
+     * 按指定失效时间写入，失效时间同样加抖动，未开启按条目失效时间时使用统一失效时间
+     *
+     * @param key 缓存key
+     * @param value 缓存值
+     * @param expireNanos 失效时间(纳秒)
+     */
+    private void putWithExpiry(Object key, Object value, long expireNanos) {
+        Optional<Policy.VarExpiration<Object, Object>> expiration = null == this.expiry || expireNanos <= 0
+                ? Optional.empty() : this.cache.policy().expireVariably();
+        if (expiration.isPresent()) {
+            expiration.get().put(key, value, this.expiry.jitter(expireNanos), TimeUnit.NANOSECONDS);
+        } else {
+            this.cache.put(key, value);
+        }
+    }
+
+    /**
+     * 采样key时记录一次访问
+     *
+     * @param key 缓存key
+     * @param stored 缓存中的值，缺失时为null
+     */
+    private void sample(Object key, Object stored) {
+        MissRatioCurveSampler current = this.sampler;
+        if (null == current || !current.isSampled(key)) {
+            return;
+        }
+        int weight = this.maxWeightBytes <= 0 ? 1
+                : null == stored ? -1 : weigh(key, stored);
+        current.record(key, weight);
     }
 
+    /**
+     * 删除空值标记
+     *
+     * @param key 缓存key
+     */
+    private void clearAbsent(Object key) {
+        Cache<Object, Object> absent = this.absentCache;
+        if (null != absent) {
+            absent.invalidate(key);
+        }
+    }
+
+    /**
+     * 批量获取缓存中的值，使用Caffeine批量接口一次查询
+     *
+     * @param ids 缓存key
+     * @param <K> key类型
+     * @return 缓存key - 缓存中的值
+     */
+    @SuppressWarnings("unchecked")
     private <K> Map<K, Object> batchGetValues(Collection<K> ids) {
-        Map<K, Object> result = new HashMap<>();
-        if (null == ids || null == this.cache) {
-            return result;
+        if (null == ids || null == this.cache || ids.isEmpty()) {
+            return new HashMap<>(4);
         }
         try {
+            Map<Object, K> keyToId = new HashMap<>(mapCapacity(ids.size()));
+            // 转换为同一缓存key的其他id，如STRING类型下的1和"1"，命中时一并返回
+            Map<Object, List<K>> aliases = null;
             for (K id : ids) {
-                String coveredId = String.valueOf(id);
-                Object value = this.cache.getIfPresent(coveredId);
-                if (null != value) {
-                    result.put(id, value);
+                Object key = null == id ? null : toKey(id);
+                if (null == key) {
+                    continue;
+                }
+                K previous = keyToId.putIfAbsent(key, id);
+                if (null != previous && !previous.equals(id)) {
+                    if (null == aliases) {
+                        aliases = new HashMap<>(4);
+                    }
+                    aliases.computeIfAbsent(key, k -> new ArrayList<>(2)).add(id);
                 }
             }
+            Map<Object, Object> present = this.cache.getAllPresent(keyToId.keySet());
+            if (null != this.sampler) {
+                for (Object key : keyToId.keySet()) {
+                    sample(key, present.get(key));
+                }
+            }
+            if (CacheKeyType.IDENTITY == this.keyType) {
+                return new HashMap<>((Map<K, Object>) present);
+            }
+            Map<K, Object> result = new HashMap<>(mapCapacity(present.size()));
+            for (Map.Entry<Object, Object> entry : present.entrySet()) {
+                result.put(keyToId.get(entry.getKey()), entry.getValue());
+                List<K> sameKeyIds = null == aliases ? null : aliases.get(entry.getKey());
+                if (null != sameKeyIds) {
+                    for (K id : sameKeyIds) {
+                        result.put(id, entry.getValue());
+                    }
+                }
+            }
+            return result;
         } catch (Exception e) {
             log.error("批量获取数据错误, ids:{}", ids.toString(), e);
+            return new HashMap<>(4);
         }
-        return result;
+    }
+
+    /**
+     * 计算HashMap初始容量，避免扩容
+     *
+     * @param size 预期元素数
+     * @return 初始容量
+     */
+    private static int mapCapacity(int size) {
+        return size < 3 ? 4 : (int) (size / 0.75f) + 1;
+    }
+
+    /**
+     * 获取按字节限制的缓存当前估算大小
+     *
+     * @param cache caffeine缓存
+     * @return 估算字节数，-1-未按字节限制
+     */
+    static long getWeightedSize(Cache<?, ?> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(-1L))
+                .orElse(-1L);
+    }
+
+    /**
+     * 按key类型转换缓存key，组合key原样使用
+     *
+     * @param id 原始key
+     * @return 缓存key，无法按key类型转换时记录日志并返回null，调用方忽略该key
+     */
+    private Object toKey(Object id) {
+        if (id instanceof CompositeKey) {
+            return id;
+        }
+        Object key = this.keyType.convert(id);
+        if (null == key) {
+            log.warn("缓存key无法按类型转换, 忽略该key, cacheName:{}, keyType:{}, id:{}", this.cacheName, this.keyType, id);
+        }
+        return key;
+    }
+
+    /**
+     * 按key类型转换long型缓存key
+     *
+     * @param id 原始key
+     * @return 缓存key，超出key类型范围时记录日志并返回null
+     */
+    private Object toLongKey(long id) {
+        Object key = this.keyType.convert(id);
+        if (null == key) {
+            log.warn("缓存key超出类型范围, 忽略该key, cacheName:{}, keyType:{}, id:{}", this.cacheName, this.keyType, id);
+        }
+        return key;
+    }
+
+    /**
+     * 按配置压缩缓存值，开启解码缓存或按条目失效(需记录写入时间)时包装缓存值
+     *
+     * @param value 原始值
+     * @return 写入Caffeine的值
+     */
+    private Object wrap(Object value) {
+        Object stored = null == this.compressor ? value : this.compressor.compress(value);
+        if (this.decodeCache || null != this.expiry) {
+            return new CacheEntry(stored, this.decodeCache);
+        }
+        return stored;
+    }
+
+    /**
+     * 估算条目字节数，压缩值按压缩后的字节估算
+     *
+     * @param key 缓存key
+     * @param stored 缓存中的值
+     * @return 估算字节数
+     */
+    private int weigh(Object key, Object stored) {
+        Object value = CacheEntry.strip(stored);
+        if (value instanceof ValueCompressor.Compressed) {
+            return this.sizeEstimator.estimate(key, ((ValueCompressor.Compressed) value).getData());
+        }
+        return this.sizeEstimator.estimate(key, value);
+    }
+
+    /**
+     * 格式化缓存值，解码缓存条目复用已解码对象
+     *
+     * @param stored 缓存中的值
+     * @param formatClass 数据类型
+     * @param <T> value类型
+     * @return 格式化结果
+     */
+    private <T> T format(Object stored, Class<T> formatClass) {
+        if (stored instanceof CacheEntry) {
+            return ((CacheEntry) stored).decode(formatClass);
+        }
+        return JsonUtils.findObject(String.valueOf(CacheEntry.unwrap(stored)), formatClass);
     }
 }
@@ -0,0 +1,473 @@
+package org.example.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.spi.CaffeineCache;
+import org.example.spi.CaffeineCacheRegister;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存快照，定期将各缓存最热的条目写入紧凑二进制文件，启动时并行恢复，减少发布后的冷启动穿透。
+ * 启动时通过{@link #registerCaches(CaffeineCacheRegister, long)}注册缓存，注册完成后恢复快照并开始定期写快照。
+ * 条目按写快照时的剩余失效时间恢复，已失效的条目跳过；未开启按条目失效时间的缓存按统一失效时间恢复。
+ * 序列化值只允许反序列化白名单前缀下的类，无法恢复的条目单独跳过。
+ *
+ * 文件格式：magic(int) version(byte) writeTime(long) count(int) [expireTime(long) keyTag(byte) key valueTag(byte) value]*
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class CaffeineCacheSnapshot {
+
+    private static final int MAGIC = 0x43434653;
+    private static final byte FORMAT_VERSION = 2;
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_BYTES = 4;
+    private static final byte TAG_SERIALIZED = 5;
+
+    /**
+     * 默认允许反序列化的类名前缀，包含本组件的组合key
+     */
+    private static final List<String> DEFAULT_ALLOWED_CLASSES = Arrays.asList("java.lang.", "java.util.", "java.math.", "java.time.",
+            CompositeKey.class.getName());
+
+    /**
+     * 快照目录
+     */
+    private final Path directory;
+    /**
+     * 每个缓存最多保存的条目数
+     */
+    private final int maxEntries;
+    /**
+     * 快照最大有效期(秒)，0-使用缓存失效时间
+     */
+    private final int maxSnapshotAge;
+    /**
+     * 允许反序列化的类名前缀
+     */
+    private final List<String> allowedClasses;
+    /**
+     * 已注册缓存
+     */
+    private final List<CaffeineCache> caches = new CopyOnWriteArrayList<>();
+    /**
+     * 定期写快照线程
+     */
+    private ScheduledExecutorService scheduler;
+    /**
+     * 关闭JVM时写快照，start时注册，stop时移除
+     */
+    private Thread shutdownHook;
+
+    public CaffeineCacheSnapshot(Path directory, int maxEntries, int maxSnapshotAge) {
+        this(directory, maxEntries, maxSnapshotAge, null);
+    }
+
+    /**
+     * @param directory 快照目录
+     * @param maxEntries 每个缓存最多保存的条目数
+     * @param maxSnapshotAge 快照最大有效期(秒)，0-使用缓存失效时间
+     * @param allowedClasses 缓存值使用Java序列化时额外允许反序列化的类名前缀，如业务DTO所在包名"com.example.dto."
+     */
+    public CaffeineCacheSnapshot(Path directory, int maxEntries, int maxSnapshotAge, Collection<String> allowedClasses) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.maxSnapshotAge = maxSnapshotAge;
+        this.allowedClasses = new ArrayList<>(DEFAULT_ALLOWED_CLASSES);
+        if (null != allowedClasses) {
+            this.allowedClasses.addAll(allowedClasses);
+        }
+    }
+
+    /**
+     * 执行缓存注册，注册过程中通过{@link #register(CaffeineCache)}登记的缓存在注册完成后并行恢复快照，再开始定期写快照
+     *
+     * @param register 缓存注册器
+     * @param intervalSeconds 写快照间隔(秒)
+     * @return 恢复的条目总数
+     */
+    public int registerCaches(CaffeineCacheRegister register, long intervalSeconds) {
+        register.registerCaches();
+        int restored = restoreAll();
+        start(intervalSeconds);
+        return restored;
+    }
+
+    /**
+     * 注册需要快照的缓存
+     *
+     * @param cache 缓存
+     */
+    public void register(CaffeineCache cache) {
+        this.caches.add(cache);
+    }
+
+    /**
+     * 开始定期写快照，关闭JVM时再写一次
+     *
+     * @param intervalSeconds 写快照间隔(秒)
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (null != this.scheduler) {
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caffeine-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::writeAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        this.shutdownHook = new Thread(this::writeAll, "caffeine-cache-snapshot-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * 停止定期写快照，移除关闭JVM时的写快照
+     */
+    public synchronized void stop() {
+        if (null != this.scheduler) {
+            this.scheduler.shutdown();
+            this.scheduler = null;
+        }
+        if (null != this.shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM正在关闭，由shutdown hook写快照
+            }
+            this.shutdownHook = null;
+        }
+    }
+
+    /**
+     * 写全部缓存快照
+     */
+    public void writeAll() {
+        for (CaffeineCache cache : this.caches) {
+            try {
+                write(cache);
+            } catch (Exception e) {
+                log.error("写缓存快照异常, cacheName:{}", cache.getCacheName(), e);
+            }
+        }
+    }
+
+    /**
+     * 并行恢复全部缓存快照
+     *
+     * @return 恢复的条目总数
+     */
+    public int restoreAll() {
+        if (this.caches.isEmpty()) {
+            return 0;
+        }
+        int threads = Math.min(this.caches.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>(this.caches.size());
+            for (CaffeineCache cache : this.caches) {
+                futures.add(pool.submit(() -> restore(cache)));
+            }
+            int total = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    total += futures.get(i).get();
+                } catch (Exception e) {
+                    log.error("恢复缓存快照异常, cacheName:{}", this.caches.get(i).getCacheName(), e);
+                }
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 写单个缓存快照，每次写入使用独立临时文件再原子替换，定期写与关闭时写并发时不会写坏文件
+     *
+     * @param cache 缓存
+     * @return 写入的条目数
+     * @throws IOException 写文件异常
+     */
+    @SuppressWarnings("unchecked")
+    int write(CaffeineCache cache) throws IOException {
+        Cache<Object, Object> caffeine = cache.getCache();
+        Map<Object, Object> hottest = caffeine.policy().eviction()
+                .map(eviction -> eviction.hottest(this.maxEntries))
+                .orElseGet(caffeine::asMap);
+        Optional<Policy.VarExpiration<Object, Object>> variable = caffeine.policy().expireVariably();
+        Optional<Policy.Expiration<Object, Object>> fixed = caffeine.policy().expireAfterWrite();
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream body = new DataOutputStream(bytes);
+        int count = 0;
+        for (Map.Entry<Object, Object> entry : hottest.entrySet()) {
+            if (count >= this.maxEntries) {
+                break;
+            }
+            Object value = CacheEntry.unwrap(entry.getValue());
+            if (!isWritable(entry.getKey()) || !isWritable(value)) {
+                continue;
+            }
+            long remaining = remainingMillis(entry.getKey(), variable, fixed);
+            if (remaining <= 0L) {
+                continue;
+            }
+            body.writeLong(Long.MAX_VALUE == remaining ? Long.MAX_VALUE : now + remaining);
+            writeObject(body, entry.getKey());
+            writeObject(body, value);
+            count++;
+        }
+        body.flush();
+        ByteBuffer header = ByteBuffer.allocate(17);
+        header.putInt(MAGIC).put(FORMAT_VERSION).putLong(now).putInt(count);
+        header.flip();
+
+        Files.createDirectories(this.directory);
+        Path target = snapshotFile(cache);
+        Path temp = Files.createTempFile(this.directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+                while (header.hasRemaining() || data.hasRemaining()) {
+                    channel.write(new ByteBuffer[] { header, data });
+                }
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("写缓存快照完成, cacheName:{}, count:{}", cache.getCacheName(), count);
+        return count;
+    }
+
+    /**
+     * 获取条目剩余失效时间
+     *
+     * @param key 缓存key
+     * @param variable 按条目失效策略
+     * @param fixed 统一失效策略
+     * @return 剩余时间(毫秒)，0-已失效或不存在，无失效策略时为Long.MAX_VALUE
+     */
+    private static long remainingMillis(Object key, Optional<Policy.VarExpiration<Object, Object>> variable,
+                                        Optional<Policy.Expiration<Object, Object>> fixed) {
+        if (variable.isPresent()) {
+            return variable.get().getExpiresAfter(key, TimeUnit.MILLISECONDS).orElse(0L);
+        }
+        if (fixed.isPresent()) {
+            Policy.Expiration<Object, Object> expiration = fixed.get();
+            return expiration.ageOf(key, TimeUnit.MILLISECONDS)
+                    .map(age -> expiration.getExpiresAfter(TimeUnit.MILLISECONDS) - age)
+                    .orElse(0L);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 恢复单个缓存快照，快照超过有效期时跳过；条目按剩余失效时间写入，已失效或无法反序列化的条目跳过，
+     * 文件损坏时保留已恢复的条目并停止读取
+     *
+     * @param cache 缓存
+     * @return 恢复的条目数
+     * @throws IOException 读文件异常
+     */
+    int restore(CaffeineCache cache) throws IOException {
+        Path file = snapshotFile(cache);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 17 || MAGIC != buffer.getInt() || FORMAT_VERSION != buffer.get()) {
+                log.warn("缓存快照格式不匹配, 跳过恢复, file:{}", file);
+                return 0;
+            }
+            long writeTime = buffer.getLong();
+            long maxAgeMillis = TimeUnit.SECONDS.toMillis(this.maxSnapshotAge > 0 ? this.maxSnapshotAge : cache.getExpireAfterWrite());
+            if (System.currentTimeMillis() - writeTime > maxAgeMillis) {
+                log.info("缓存快照已过期, 跳过恢复, cacheName:{}", cache.getCacheName());
+                return 0;
+            }
+            int count = buffer.getInt();
+            int restored = 0;
+            int unreadable = 0;
+            int expired = 0;
+            try {
+                for (int i = 0; i < count; i++) {
+                    long expireTime = buffer.getLong();
+                    Object key = readObject(buffer);
+                    Object value = readObject(buffer);
+                    long remaining = expireTime - System.currentTimeMillis();
+                    if (null == key || null == value) {
+                        unreadable++;
+                        continue;
+                    }
+                    if (remaining <= 0L) {
+                        expired++;
+                        continue;
+                    }
+                    cache.addValue(key, value, remaining, TimeUnit.MILLISECONDS);
+                    restored++;
+                }
+            } catch (IOException | BufferUnderflowException e) {
+                log.warn("缓存快照文件损坏, 停止恢复, cacheName:{}, restored:{}", cache.getCacheName(), restored, e);
+            }
+            if (unreadable > 0) {
+                log.warn("缓存快照部分条目无法反序列化, 已跳过, cacheName:{}, skipped:{}", cache.getCacheName(), unreadable);
+            }
+            log.info("恢复缓存快照完成, cacheName:{}, count:{}, expired:{}", cache.getCacheName(), restored, expired);
+            return restored;
+        }
+    }
+
+    private Path snapshotFile(CaffeineCache cache) {
+        return this.directory.resolve(cache.getCacheName().replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX);
+    }
+
+    private static boolean isWritable(Object object) {
+        return object instanceof Serializable;
+    }
+
+    private static void writeObject(DataOutputStream out, Object object) throws IOException {
+        if (object instanceof String) {
+            byte[] data = ((String) object).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(TAG_STRING);
+            out.writeInt(data.length);
+            out.write(data);
+        } else if (object instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) object);
+        } else if (object instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) object);
+        } else if (object instanceof byte[]) {
+            byte[] data = (byte[]) object;
+            out.writeByte(TAG_BYTES);
+            out.writeInt(data.length);
+            out.write(data);
+        } else {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+                objectOut.writeObject(object);
+            }
+            out.writeByte(TAG_SERIALIZED);
+            out.writeInt(serialized.size());
+            serialized.writeTo(out);
+        }
+    }
+
+    /**
+     * 读取key或value，序列化对象无法反序列化时返回null，由调用方跳过该条目
+     *
+     * @param buffer 快照数据
+     * @return 对象
+     * @throws IOException 数据类型未知，无法继续读取
+     */
+    private Object readObject(ByteBuffer buffer) throws IOException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_STRING:
+                return new String(readBytes(buffer), StandardCharsets.UTF_8);
+            case TAG_LONG:
+                return buffer.getLong();
+            case TAG_INT:
+                return buffer.getInt();
+            case TAG_BYTES:
+                return readBytes(buffer);
+            case TAG_SERIALIZED:
+                byte[] data = readBytes(buffer);
+                try (ObjectInputStream in = new AllowListObjectInputStream(new ByteArrayInputStream(data), this.allowedClasses)) {
+                    return in.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    log.warn("缓存快照条目反序列化失败, 跳过该条目, error:{}", e.toString());
+                    return null;
+                }
+            default:
+                throw new IOException("未知的快照数据类型: " + tag);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * 只允许反序列化白名单前缀下的类，数组按元素类型判断
+     */
+    private static final class AllowListObjectInputStream extends ObjectInputStream {
+
+        private final List<String> allowedClasses;
+
+        AllowListObjectInputStream(InputStream in, List<String> allowedClasses) throws IOException {
+            super(in);
+            this.allowedClasses = allowedClasses;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            int dimensions = 0;
+            while (dimensions < name.length() && '[' == name.charAt(dimensions)) {
+                dimensions++;
+            }
+            if (dimensions > 0) {
+                // 基本类型数组如[B，对象数组如[Ljava.lang.String;
+                name = 'L' == name.charAt(dimensions) ? name.substring(dimensions + 1, name.length() - 1) : null;
+            }
+            if (null != name && !isAllowed(name)) {
+                throw new InvalidClassException(desc.getName(), "不在快照反序列化白名单中");
+            }
+            return super.resolveClass(desc);
+        }
+
+        private boolean isAllowed(String name) {
+            for (String prefix : this.allowedClasses) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
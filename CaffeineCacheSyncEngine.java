@@ -0,0 +1,344 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.example.constant.CaffeineCacheConstants;
+import org.example.spi.CacheChangeEvent;
+import org.example.spi.CacheChangeListener;
+import org.example.spi.CacheSyncTransport;
+import org.example.spi.CaffeineCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存跨节点同步引擎，按缓存监听路径订阅变更事件，在延时窗口内合并后批量作用于本地缓存。
+ * 需显式启用：在{@link org.example.spi.CaffeineCacheRegister#registerCaches()}中对每个缓存调用{@link #register(CaffeineCache)}，
+ * 并使用返回的缓存，未注册的缓存既不接收也不发布变更。
+ * 其他节点的刷新按接收时的本地缓存版本写入，接收后本地已删除的key不会被延迟到达的刷新覆盖。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class CaffeineCacheSyncEngine {
+
+    /**
+     * 变更通知通道
+     */
+    private final CacheSyncTransport transport;
+    /**
+     * 本节点标识
+     */
+    private final String nodeId;
+    /**
+     * 合并窗口(毫秒)
+     */
+    private final long delayMillis;
+    /**
+     * 监听路径 - 该路径下的缓存
+     */
+    private final ConcurrentMap<String, List<CaffeineCache>> caches = new ConcurrentHashMap<>();
+    /**
+     * 监听路径 - 监听器
+     */
+    private final ConcurrentMap<String, CacheChangeListener> listeners = new ConcurrentHashMap<>();
+    /**
+     * 缓存名 - 待应用变更
+     */
+    private final ConcurrentMap<String, PendingChanges> pending = new ConcurrentHashMap<>();
+    /**
+     * 合并刷新线程
+     */
+    private final ScheduledExecutorService scheduler;
+
+    public CaffeineCacheSyncEngine(CacheSyncTransport transport) {
+        this(transport, UUID.randomUUID().toString(), CaffeineCacheConstants.DEFAULT_DELAY_TIME);
+    }
+
+    public CaffeineCacheSyncEngine(CacheSyncTransport transport, String nodeId, long delayMillis) {
+        this.transport = transport;
+        this.nodeId = nodeId;
+        this.delayMillis = delayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caffeine-cache-sync-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 注册缓存，订阅其监听路径，无监听路径的缓存不参与同步。
+     * 其他节点的变更作用于传入的缓存；本节点应使用返回的缓存，其removeKey/removeKeys/removeAll自动通知其他节点
+     *
+     * @param cache 缓存
+     * @return 删除时自动通知其他节点的缓存，缓存不参与同步时返回传入的缓存
+     */
+    public CaffeineCache register(CaffeineCache cache) {
+        String path = cache.getListenPath();
+        if (StringUtils.isBlank(path)) {
+            log.info("缓存未配置监听路径, 不参与同步, cacheName:{}", cache.getCacheName());
+            return cache;
+        }
+        this.caches.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>()).add(cache);
+        this.listeners.computeIfAbsent(path, key -> {
+            CacheChangeListener listener = event -> onChange(key, event);
+            this.transport.subscribe(key, listener);
+            return listener;
+        });
+        return new PublishingDecorator(cache);
+    }
+
+    /**
+     * 删除本地缓存并通知其他节点
+     *
+     * @param cache 缓存
+     * @param keys 缓存key
+     */
+    public void publishRemove(CaffeineCache cache, Collection<Object> keys) {
+        cache.removeKeys(keys);
+        publish(cache, CacheChangeEvent.remove(cache.getCacheName(), keys));
+    }
+
+    /**
+     * 更新本地缓存并通知其他节点
+     *
+     * @param cache 缓存
+     * @param values 缓存key和value
+     */
+    public void publishRefresh(CaffeineCache cache, Map<Object, Object> values) {
+        cache.addValues(values);
+        publish(cache, CacheChangeEvent.refresh(cache.getCacheName(), values));
+    }
+
+    /**
+     * 清空本地缓存并通知其他节点
+     *
+     * @param cache 缓存
+     */
+    public void publishClear(CaffeineCache cache) {
+        cache.removeAll();
+        publish(cache, CacheChangeEvent.clear(cache.getCacheName()));
+    }
+
+    /**
+     * 立即应用全部待合并变更
+     */
+    public void flush() {
+        for (String cacheName : this.pending.keySet()) {
+            apply(cacheName);
+        }
+    }
+
+    /**
+     * 取消订阅并应用剩余变更
+     */
+    public void close() {
+        for (Map.Entry<String, CacheChangeListener> entry : this.listeners.entrySet()) {
+            this.transport.unsubscribe(entry.getKey(), entry.getValue());
+        }
+        this.listeners.clear();
+        flush();
+        this.scheduler.shutdown();
+    }
+
+    private void publish(CaffeineCache cache, CacheChangeEvent event) {
+        String path = cache.getListenPath();
+        if (StringUtils.isBlank(path)) {
+            return;
+        }
+        event.setSource(this.nodeId);
+        this.transport.publish(path, event);
+    }
+
+    /**
+     * 接收变更事件，合并到待应用变更中
+     */
+    private void onChange(String path, CacheChangeEvent event) {
+        if (null == event || null == event.getType() || this.nodeId.equals(event.getSource())) {
+            return;
+        }
+        List<CaffeineCache> pathCaches = this.caches.get(path);
+        if (null == pathCaches) {
+            return;
+        }
+        for (CaffeineCache cache : pathCaches) {
+            if (null != event.getCacheName() && !event.getCacheName().equals(cache.getCacheName())) {
+                continue;
+            }
+            PendingChanges changes = this.pending.computeIfAbsent(cache.getCacheName(), name -> new PendingChanges(cache));
+            if (changes.merge(event)) {
+                this.scheduler.schedule(() -> apply(cache.getCacheName()), this.delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 应用缓存的待合并变更
+     */
+    private void apply(String cacheName) {
+        PendingChanges changes = this.pending.get(cacheName);
+        if (null == changes) {
+            return;
+        }
+        try {
+            changes.drainAndApply();
+        } catch (Exception e) {
+            log.error("缓存同步变更应用异常, cacheName:{}", cacheName, e);
+        }
+    }
+
+    /**
+     * 删除时通知其他节点的缓存
+     */
+    private final class PublishingDecorator extends BaseDecorator {
+
+        PublishingDecorator(CaffeineCache cache) {
+            super(cache);
+        }
+
+        @Override
+        public void removeKey(Object id) {
+            if (null == id) {
+                return;
+            }
+            this.cache.removeKey(id);
+            publish(this.cache, CacheChangeEvent.remove(getCacheName(), Collections.singletonList(id)));
+        }
+
+        @Override
+        public void removeKeyByLong(long id) {
+            removeKey(id);
+        }
+
+        @Override
+        public <K> void removeKeys(Collection<K> ids) {
+            if (null == ids || ids.isEmpty()) {
+                return;
+            }
+            publishRemove(this.cache, new ArrayList<>(ids));
+        }
+
+        @Override
+        public void removeAll() {
+            publishClear(this.cache);
+        }
+    }
+
+    /**
+     * 单个缓存在合并窗口内的待应用变更，同一key以最后一次变更为准
+     */
+    private static final class PendingChanges {
+        /**
+         * 应用锁，定时应用、flush和close可能并发，取出和应用在同一把锁内完成，先取出的变更先应用
+         */
+        private final Object applyLock = new Object();
+        private final CaffeineCache cache;
+        private boolean clear;
+        private Set<Object> removals = new LinkedHashSet<>();
+        private Map<Object, Object> refreshes = new HashMap<>();
+        /**
+         * 窗口内第一个刷新事件接收时的缓存版本，之后本地删除过的key不写入
+         */
+        private long refreshVersion;
+        /**
+         * 上一次应用完删除后的缓存版本，只在applyLock内读写
+         */
+        private long appliedVersion;
+        private boolean scheduled;
+
+        PendingChanges(CaffeineCache cache) {
+            this.cache = cache;
+        }
+
+        /**
+         * 合并事件
+         *
+         * @return true-需要调度一次应用
+         */
+        synchronized boolean merge(CacheChangeEvent event) {
+            switch (event.getType()) {
+                case CLEAR:
+                    this.clear = true;
+                    this.removals.clear();
+                    this.refreshes.clear();
+                    break;
+                case REMOVE:
+                    if (null != event.getKeys()) {
+                        for (Object key : event.getKeys()) {
+                            this.refreshes.remove(key);
+                            this.removals.add(key);
+                        }
+                    }
+                    break;
+                case REFRESH:
+                    if (null != event.getValues()) {
+                        if (this.refreshes.isEmpty()) {
+                            this.refreshVersion = this.cache.getVersion();
+                        }
+                        for (Map.Entry<Object, Object> entry : event.getValues().entrySet()) {
+                            this.removals.remove(entry.getKey());
+                            this.refreshes.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                    break;
+                default:
+                    return false;
+            }
+            if (this.scheduled) {
+                return false;
+            }
+            this.scheduled = true;
+            return true;
+        }
+
+        /**
+         * 取出并应用全部变更，多个线程同时调用时按取出顺序依次应用，较早的刷新不会覆盖较晚的删除
+         */
+        void drainAndApply() {
+            synchronized (this.applyLock) {
+                boolean clearAll;
+                Collection<Object> removeKeys;
+                Map<Object, Object> refreshValues;
+                long version;
+                synchronized (this) {
+                    clearAll = this.clear;
+                    removeKeys = this.removals;
+                    refreshValues = this.refreshes;
+                    version = this.refreshVersion;
+                    this.clear = false;
+                    this.removals = new LinkedHashSet<>();
+                    this.refreshes = new HashMap<>();
+                    this.scheduled = false;
+                }
+                if (clearAll) {
+                    this.cache.removeAll();
+                }
+                if (!removeKeys.isEmpty()) {
+                    this.cache.removeKeys(new ArrayList<>(removeKeys));
+                }
+                if (!refreshValues.isEmpty()) {
+                    // 清空之前的刷新已在合并时丢弃；上一批变更可能在本批刷新接收后才应用完，本批刷新晚于上一批变更到达
+                    long refreshAt = clearAll ? this.cache.getVersion() : Math.max(version, this.appliedVersion);
+                    this.cache.addValues(refreshValues, refreshAt);
+                }
+                this.appliedVersion = this.cache.getVersion();
+                log.debug("缓存同步变更已应用, cacheName:{}, clear:{}, remove:{}, refresh:{}",
+                        this.cache.getCacheName(), clearAll, removeKeys.size(), refreshValues.size());
+            }
+        }
+    }
+}
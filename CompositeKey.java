@@ -0,0 +1,73 @@
+package org.example.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 多参数组合缓存key，不可变，构造时计算哈希，不做字符串拼接。
+ * 写入缓存时不经过{@link org.example.spi.CacheKeyType}转换，各部分需正确实现equals/hashCode且创建后不再修改，
+ * 否则已缓存key的哈希与内容不一致，无法再命中或删除。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public final class CompositeKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * key各部分
+     */
+    private final Object[] parts;
+    /**
+     * 哈希值
+     */
+    private final int hash;
+
+    private CompositeKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.deepHashCode(parts);
+    }
+
+    /**
+     * 创建组合key
+     *
+     * @param parts key各部分，按顺序组合
+     * @return 组合key
+     */
+    public static CompositeKey of(Object... parts) {
+        return new CompositeKey(parts.clone());
+    }
+
+    /**
+     * 使用调用方新建且不再修改的数组创建组合key，不复制数组
+     *
+     * @param parts key各部分
+     * @return 组合key
+     */
+    static CompositeKey ofOwned(Object[] parts) {
+        return new CompositeKey(parts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompositeKey)) {
+            return false;
+        }
+        CompositeKey that = (CompositeKey) o;
+        return this.hash == that.hash && Arrays.deepEquals(this.parts, that.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.deepToString(this.parts);
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.core;
+
+import org.example.spi.CacheValueSizeEstimator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 默认内存估算器，按64位JVM开启压缩指针估算，String/byte[]按长度计算，JSON字符串即按String计算；
+ * 业务对象按字段逐层估算，集合按前若干个元素的平均大小折算，超过最大深度或无法反射的对象按平均对象大小计算
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class DefaultCacheValueSizeEstimator implements CacheValueSizeEstimator {
+
+    public static final DefaultCacheValueSizeEstimator INSTANCE = new DefaultCacheValueSizeEstimator();
+
+    /**
+     * Caffeine节点及引用开销
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+    /**
+     * 对象头及字段的平均估算
+     */
+    private static final int OBJECT_SIZE = 64;
+    private static final int STRING_HEADER = 40;
+    private static final int ARRAY_HEADER = 16;
+    private static final int BOXED_SIZE = 16;
+    private static final int REFERENCE_SIZE = 8;
+    private static final int OBJECT_HEADER = 16;
+    /**
+     * 业务对象逐层估算的最大深度
+     */
+    private static final int MAX_DEPTH = 4;
+    /**
+     * 集合按前多少个元素估算平均大小
+     */
+    private static final int SAMPLE_ELEMENTS = 8;
+
+    /**
+     * 类型 - 实例字段，JDK类型及无法反射的类型为null
+     */
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+                return null;
+            }
+            List<Field> fields = new ArrayList<>();
+            try {
+                for (Class<?> current = type; null != current && Object.class != current; current = current.getSuperclass()) {
+                    for (Field field : current.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers())) {
+                            field.setAccessible(true);
+                            fields.add(field);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    @Override
+    public int estimate(Object key, Object value) {
+        long size = ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * 估算单个对象的字节数
+     *
+     * @param object 对象
+     * @return 估算字节数
+     */
+    protected long sizeOf(Object object) {
+        return sizeOf(object, 0);
+    }
+
+    private long sizeOf(Object object, int depth) {
+        if (null == object) {
+            return 0L;
+        }
+        if (object instanceof String) {
+            return STRING_HEADER + 2L * ((String) object).length();
+        }
+        if (object instanceof byte[]) {
+            return ARRAY_HEADER + ((byte[]) object).length;
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return BOXED_SIZE;
+        }
+        if (depth >= MAX_DEPTH) {
+            return OBJECT_SIZE;
+        }
+        if (object instanceof Collection) {
+            Collection<?> collection = (Collection<?>) object;
+            return OBJECT_SIZE + (long) collection.size() * (REFERENCE_SIZE + averageSize(collection, depth + 1));
+        }
+        if (object instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            return OBJECT_SIZE + (long) map.size() * (REFERENCE_SIZE * 4 + averageSize(map.keySet(), depth + 1)
+                    + averageSize(map.values(), depth + 1));
+        }
+        Field[] fields = FIELDS.get(object.getClass());
+        if (null == fields) {
+            return OBJECT_SIZE;
+        }
+        long size = OBJECT_HEADER;
+        for (Field field : fields) {
+            size += REFERENCE_SIZE;
+            if (!field.getType().isPrimitive()) {
+                try {
+                    size += sizeOf(field.get(object), depth + 1);
+                } catch (IllegalAccessException e) {
+                    size += OBJECT_SIZE;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 按前若干个元素估算集合元素的平均字节数
+     *
+     * @param elements 集合元素
+     * @param depth 元素所在深度
+     * @return 平均字节数
+     */
+    private long averageSize(Collection<?> elements, int depth) {
+        if (elements.isEmpty()) {
+            return 0L;
+        }
+        long total = 0L;
+        int sampled = 0;
+        Iterator<?> iterator = elements.iterator();
+        while (sampled < SAMPLE_ELEMENTS && iterator.hasNext()) {
+            total += sizeOf(iterator.next(), depth);
+            sampled++;
+        }
+        return total / sampled;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.core;
+
+import org.example.spi.CacheValueCodec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate编解码器，默认使用最快压缩级别。Deflater/Inflater持有堆外内存，放入有界池复用，
+ * 池满时归还的实例立即end()释放，不随线程数增长，也不依赖GC回收。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class DeflateCacheValueCodec implements CacheValueCodec {
+
+    public static final DeflateCacheValueCodec INSTANCE = new DeflateCacheValueCodec(Deflater.BEST_SPEED);
+
+    /**
+     * 压缩级别
+     */
+    private final int level;
+    /**
+     * 空闲的Deflater/Inflater
+     */
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    /**
+     * @param level 压缩级别，{@link Deflater#BEST_SPEED}到{@link Deflater#BEST_COMPRESSION}
+     */
+    public DeflateCacheValueCodec(int level) {
+        this.level = level;
+        int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.deflaters = new ArrayBlockingQueue<>(poolSize);
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public byte[] compress(byte[] raw) {
+        Deflater deflater = this.deflaters.poll();
+        if (null == deflater) {
+            deflater = new Deflater(this.level);
+        }
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[raw.length];
+            int length = deflater.deflate(buffer);
+            if (!deflater.finished() || length >= raw.length) {
+                return null;
+            }
+            byte[] compressed = new byte[length];
+            System.arraycopy(buffer, 0, compressed, 0, length);
+            return compressed;
+        } finally {
+            deflater.reset();
+            if (!this.deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] compressed, int originalLength) {
+        Inflater inflater = this.inflaters.poll();
+        if (null == inflater) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[originalLength];
+            int length = inflater.inflate(raw);
+            if (length != originalLength) {
+                throw new IllegalStateException("解压长度不一致, expected:" + originalLength + ", actual:" + length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("解压缓存值失败", e);
+        } finally {
+            inflater.reset();
+            if (!this.inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
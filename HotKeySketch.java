@@ -0,0 +1,148 @@
+package org.example.core;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点key统计，Count-Min sketch估算访问次数，估算值超过当前top-K门槛的key进入候选集合。
+ * 内存固定，冷key的访问只做几次原子自增和一次volatile读；已在候选集合中的key原子更新计数，
+ * 只有新key进入候选集合时才进入同步块，集合已满时淘汰估算次数最小的key并重新计算门槛。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class HotKeySketch {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH_BITS = 10;
+    private static final int WIDTH = 1 << WIDTH_BITS;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+    /**
+     * 计数矩阵，DEPTH行WIDTH列按行展开
+     */
+    private volatile AtomicLongArray counters = new AtomicLongArray(DEPTH * WIDTH);
+    /**
+     * 保留的热点key数
+     */
+    private final int topK;
+    /**
+     * 热点候选：key - 估算次数
+     */
+    private final Map<Object, AtomicLong> candidates;
+    /**
+     * 进入候选集合的最小估算次数，候选未满时为0
+     */
+    private volatile long threshold;
+
+    HotKeySketch(int topK) {
+        this.topK = topK;
+        this.candidates = new ConcurrentHashMap<>(topK * 2);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 缓存key
+     */
+    void record(Object key) {
+        if (null == key) {
+            return;
+        }
+        AtomicLongArray current = this.counters;
+        int hash = mix(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = i * WIDTH + ((hash * SEEDS[i]) >>> (Integer.SIZE - WIDTH_BITS));
+            estimate = Math.min(estimate, current.incrementAndGet(index));
+        }
+        if (estimate <= this.threshold) {
+            return;
+        }
+        AtomicLong count = this.candidates.get(key);
+        if (null != count) {
+            count.accumulateAndGet(estimate, Math::max);
+            return;
+        }
+        offer(key, estimate);
+    }
+
+    /**
+     * murmur3 fmix32，打散低质量的hashCode(如连续整数)，避免集中到同一列
+     *
+     * @param hash 原始哈希
+     * @return 打散后的哈希
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * 新key进入候选集合，满时替换估算次数最小的key并重新计算门槛
+     */
+    private synchronized void offer(Object key, long estimate) {
+        AtomicLong existing = this.candidates.get(key);
+        if (null != existing) {
+            existing.accumulateAndGet(estimate, Math::max);
+            return;
+        }
+        if (this.candidates.size() < this.topK) {
+            this.candidates.put(key, new AtomicLong(estimate));
+            if (this.candidates.size() >= this.topK) {
+                this.threshold = minCount();
+            }
+            return;
+        }
+        Object minKey = null;
+        long minCount = Long.MAX_VALUE;
+        for (Map.Entry<Object, AtomicLong> entry : this.candidates.entrySet()) {
+            long count = entry.getValue().get();
+            if (count < minCount) {
+                minCount = count;
+                minKey = entry.getKey();
+            }
+        }
+        if (estimate <= minCount) {
+            this.threshold = minCount;
+            return;
+        }
+        this.candidates.remove(minKey);
+        this.candidates.put(key, new AtomicLong(estimate));
+        this.threshold = minCount();
+    }
+
+    private long minCount() {
+        long min = Long.MAX_VALUE;
+        for (AtomicLong count : this.candidates.values()) {
+            min = Math.min(min, count.get());
+        }
+        return min;
+    }
+
+    /**
+     * 取当前热点key并开始新的统计周期
+     *
+     * @return 按估算次数降序的热点key
+     */
+    synchronized List<Map.Entry<Object, Long>> snapshotAndReset() {
+        List<Map.Entry<Object, Long>> hottest = new ArrayList<>(this.candidates.size());
+        for (Map.Entry<Object, AtomicLong> entry : this.candidates.entrySet()) {
+            hottest.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get()));
+        }
+        hottest.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        this.candidates.clear();
+        this.threshold = 0L;
+        this.counters = new AtomicLongArray(DEPTH * WIDTH);
+        return hottest;
+    }
+}
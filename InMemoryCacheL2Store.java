@@ -0,0 +1,115 @@
+package org.example.core;
+
+import org.example.spi.CacheL2Store;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内二级缓存存储，用于测试和本地调试，多个TieredCaffeineCache共享同一实例即可模拟多节点共享
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class InMemoryCacheL2Store implements CacheL2Store {
+
+    /**
+     * 缓存名 - 缓存key - 缓存值
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Object, Expiring>> stores = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        ConcurrentMap<Object, Expiring> store = this.stores.get(cacheName);
+        return null == store || null == key ? null : read(store, key);
+    }
+
+    @Override
+    public <K> Map<K, Object> multiGet(String cacheName, Collection<K> keys) {
+        Map<K, Object> result = new HashMap<>(Math.max(4, (int) (keys.size() / 0.75f) + 1));
+        ConcurrentMap<Object, Expiring> store = this.stores.get(cacheName);
+        if (null == store) {
+            return result;
+        }
+        for (K key : keys) {
+            Object value = null == key ? null : read(store, key);
+            if (null != value) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value, int expireAfterWrite) {
+        if (null == key || null == value) {
+            return;
+        }
+        store(cacheName).put(key, new Expiring(value, deadline(expireAfterWrite)));
+    }
+
+    @Override
+    public void putAll(String cacheName, Map<?, ?> values, int expireAfterWrite) {
+        ConcurrentMap<Object, Expiring> store = store(cacheName);
+        long deadline = deadline(expireAfterWrite);
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (null != entry.getKey() && null != entry.getValue()) {
+                store.put(entry.getKey(), new Expiring(entry.getValue(), deadline));
+            }
+        }
+    }
+
+    @Override
+    public void remove(String cacheName, Collection<?> keys) {
+        ConcurrentMap<Object, Expiring> store = this.stores.get(cacheName);
+        if (null != store) {
+            for (Object key : keys) {
+                if (null != key) {
+                    store.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        this.stores.remove(cacheName);
+    }
+
+    private ConcurrentMap<Object, Expiring> store(String cacheName) {
+        return this.stores.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>());
+    }
+
+    private static Object read(ConcurrentMap<Object, Expiring> store, Object key) {
+        Expiring expiring = store.get(key);
+        if (null == expiring) {
+            return null;
+        }
+        if (System.nanoTime() - expiring.deadline >= 0) {
+            store.remove(key, expiring);
+            return null;
+        }
+        return expiring.value;
+    }
+
+    private static long deadline(int expireAfterWrite) {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(expireAfterWrite);
+    }
+
+    /**
+     * 带失效时间的值
+     */
+    private static final class Expiring {
+        private final Object value;
+        private final long deadline;
+
+        Expiring(Object value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+}
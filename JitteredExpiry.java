@@ -0,0 +1,66 @@
+package org.example.core;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带随机抖动的写入后失效策略，写入时在失效时间基础上随机缩短一定比例，避免批量写入的条目在同一时刻集中失效。
+ * 只缩短不延长，条目存活时间不超过配置的失效时间。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class JitteredExpiry implements Expiry<Object, Object> {
+
+    /**
+     * 默认失效时间(纳秒)
+     */
+    private volatile long expireNanos;
+    /**
+     * 抖动比例，[0, 1)
+     */
+    private final double jitter;
+
+    JitteredExpiry(long expireNanos, double jitter) {
+        this.expireNanos = expireNanos;
+        this.jitter = Math.max(0d, Math.min(jitter, 0.99d));
+    }
+
+    /**
+     * 调整默认失效时间，只影响之后写入的条目
+     *
+     * @param expireNanos 失效时间(纳秒)
+     */
+    void setExpireNanos(long expireNanos) {
+        this.expireNanos = expireNanos;
+    }
+
+    /**
+     * 对失效时间加随机抖动
+     *
+     * @param nanos 失效时间(纳秒)
+     * @return 抖动后的失效时间(纳秒)
+     */
+    long jitter(long nanos) {
+        if (this.jitter <= 0d || nanos <= 0L) {
+            return nanos;
+        }
+        return nanos - (long) (nanos * this.jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        return jitter(this.expireNanos);
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return jitter(this.expireNanos);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
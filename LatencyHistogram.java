@@ -0,0 +1,151 @@
+package org.example.core;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低开销延迟直方图，按2的幂分段、每段8个子桶记录纳秒耗时，相对误差约12.5%，记录时不分配对象
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间的子桶位数
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 最大记录区间2^40纳秒(约18分钟)，更大的值计入最后一个桶
+     */
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时(纳秒)
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        this.buckets[bucketIndex(nanos)].increment();
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * 获取当前周期快照并清零
+     *
+     * @return 快照
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = this.buckets[i].sumThenReset();
+            total += counts[i];
+        }
+        long maxNanos = this.max.getThenReset();
+        return new Snapshot(total, percentile(counts, total, 0.5D), percentile(counts, total, 0.99D),
+                percentile(counts, total, 0.999D), maxNanos);
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 桶的上界(纳秒)
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total <= 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(counts.length - 1);
+    }
+
+    /**
+     * 直方图快照，单位纳秒
+     */
+    public static final class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(0L, 0L, 0L, 0L, 0L);
+
+        private final long count;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Snapshot(long count, long p50, long p99, long p999, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getP50() {
+            return this.p50;
+        }
+
+        public long getP99() {
+            return this.p99;
+        }
+
+        public long getP999() {
+            return this.p999;
+        }
+
+        public long getMax() {
+            return this.max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, p50=%dus, p99=%dus, p999=%dus, max=%dus",
+                    this.count, this.p50 / 1000, this.p99 / 1000, this.p999 / 1000, this.max / 1000);
+        }
+    }
+}
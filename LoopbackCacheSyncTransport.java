@@ -0,0 +1,54 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.spi.CacheChangeEvent;
+import org.example.spi.CacheChangeListener;
+import org.example.spi.CacheSyncTransport;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内变更通知通道，在发布线程上同步投递给同一路径的全部订阅者，用于单机部署和测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class LoopbackCacheSyncTransport implements CacheSyncTransport {
+
+    /**
+     * 监听路径 - 订阅者
+     */
+    private final ConcurrentMap<String, List<CacheChangeListener>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(String path, CacheChangeListener listener) {
+        this.listeners.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void unsubscribe(String path, CacheChangeListener listener) {
+        List<CacheChangeListener> pathListeners = this.listeners.get(path);
+        if (null != pathListeners) {
+            pathListeners.remove(listener);
+        }
+    }
+
+    @Override
+    public void publish(String path, CacheChangeEvent event) {
+        List<CacheChangeListener> pathListeners = this.listeners.get(path);
+        if (null == pathListeners) {
+            return;
+        }
+        for (CacheChangeListener listener : pathListeners) {
+            try {
+                listener.onChange(event);
+            } catch (Exception e) {
+                log.error("缓存变更事件处理异常, path:{}, event:{}", path, event, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.example.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 缺失率曲线采样器，按key哈希做空间采样(SHARDS)，对采样key在多个候选容量的影子LRU中模拟访问，
+ * 得到缓存在不同容量下的命中率。影子缓存容量按采样率同比缩小，只记录key及权重，不保存缓存值。
+ * 采样key按哈希分段，各段容量再按段数均分，记录时只尝试获取所在分段的锁。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class MissRatioCurveSampler {
+
+    /**
+     * 候选容量相对基准容量的倍数
+     */
+    static final double[] SIZE_FACTORS = { 0.25d, 0.5d, 1d, 2d, 4d };
+    /**
+     * 哈希采样空间
+     */
+    private static final int HASH_SPACE = 1 << 16;
+
+    /**
+     * 最大分段数，采样访问按key哈希分段记录，各段独立加锁
+     */
+    private static final int MAX_STRIPES = 16;
+    /**
+     * 每段影子缓存的最小容量，容量过小时减少分段数以免影子缓存失真
+     */
+    private static final long MIN_STRIPE_CAPACITY = 64L;
+
+    /**
+     * 采样阈值，key哈希低16位小于该值时采样
+     */
+    private final int threshold;
+    /**
+     * 实际采样率
+     */
+    private final double rate;
+    /**
+     * 候选容量，与缓存淘汰策略同单位(条目数或字节数)
+     */
+    private final long[] sizes;
+    /**
+     * 分段，每段按采样容量的1/N模拟
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * @param baseCapacity 基准容量，取当前maxSize或maxWeightBytes，容量调整后按新容量重建
+     * @param sampleRate 采样率，(0, 1]
+     */
+    MissRatioCurveSampler(long baseCapacity, double sampleRate) {
+        this.threshold = Math.max(1, Math.min(HASH_SPACE, (int) Math.round(sampleRate * HASH_SPACE)));
+        this.rate = (double) this.threshold / HASH_SPACE;
+        this.sizes = new long[SIZE_FACTORS.length];
+        long[] ghostSizes = new long[SIZE_FACTORS.length];
+        for (int i = 0; i < SIZE_FACTORS.length; i++) {
+            this.sizes[i] = Math.max(1L, (long) (baseCapacity * SIZE_FACTORS[i]));
+            ghostSizes[i] = Math.max(1L, (long) (this.sizes[i] * this.rate));
+        }
+        int count = MAX_STRIPES;
+        while (count > 1 && ghostSizes[0] / count < MIN_STRIPE_CAPACITY) {
+            count >>= 1;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(ghostSizes, count);
+        }
+    }
+
+    /**
+     * 获取实际采样率
+     *
+     * @return 采样率
+     */
+    double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * 判断key是否被采样，未采样key的访问不加锁
+     *
+     * @param key 缓存key
+     * @return true-采样
+     */
+    boolean isSampled(Object key) {
+        int hash = spread(key);
+        return ((hash ^ (hash >>> 16)) & (HASH_SPACE - 1)) < this.threshold;
+    }
+
+    /**
+     * 记录一次采样访问，所在分段正被其他线程记录时丢弃本次访问，不阻塞读路径
+     *
+     * @param key 缓存key
+     * @param weight 条目权重，小于0-未知(缓存缺失)
+     */
+    void record(Object key, int weight) {
+        Stripe stripe = this.stripes[(spread(key) >>> 24) & (this.stripes.length - 1)];
+        if (!stripe.lock.tryLock()) {
+            return;
+        }
+        try {
+            stripe.record(key, weight);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 取当前曲线并将计数减半，使曲线跟随访问模式变化
+     *
+     * @return 曲线快照，无采样访问时返回null
+     */
+    Curve snapshotAndDecay() {
+        long[] hits = new long[SIZE_FACTORS.length];
+        long accesses = 0L;
+        for (Stripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                accesses += stripe.accesses;
+                stripe.accesses >>= 1;
+                for (int i = 0; i < hits.length; i++) {
+                    hits[i] += stripe.hits[i];
+                    stripe.hits[i] >>= 1;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return 0L == accesses ? null : new Curve(this.sizes.clone(), hits, accesses);
+    }
+
+    private static int spread(Object key) {
+        return key.hashCode() * 0x9E3779B9;
+    }
+
+    /**
+     * 采样分段，持有各候选容量的影子缓存及计数
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Ghost[] ghosts;
+        private final long[] hits;
+        private long accesses;
+        /**
+         * 采样条目的平均权重，缺失时无法取得条目权重，按平均值估算
+         */
+        private double averageWeight = 1d;
+
+        Stripe(long[] ghostSizes, int stripes) {
+            this.ghosts = new Ghost[ghostSizes.length];
+            this.hits = new long[ghostSizes.length];
+            for (int i = 0; i < ghostSizes.length; i++) {
+                this.ghosts[i] = new Ghost(Math.max(1L, ghostSizes[i] / stripes));
+            }
+        }
+
+        void record(Object key, int weight) {
+            if (weight >= 0) {
+                this.averageWeight = this.averageWeight * 0.9d + weight * 0.1d;
+            }
+            long effective = weight >= 0 ? weight : Math.max(1L, (long) this.averageWeight);
+            this.accesses++;
+            for (int i = 0; i < this.ghosts.length; i++) {
+                if (this.ghosts[i].access(key, effective)) {
+                    this.hits[i]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 缺失率曲线快照
+     */
+    static final class Curve {
+        /**
+         * 候选容量
+         */
+        final long[] sizes;
+        /**
+         * 各候选容量的命中次数
+         */
+        final long[] hits;
+        /**
+         * 采样访问次数
+         */
+        final long accesses;
+
+        Curve(long[] sizes, long[] hits, long accesses) {
+            this.sizes = sizes;
+            this.hits = hits;
+            this.accesses = accesses;
+        }
+
+        /**
+         * 获取指定候选容量的缺失率
+         *
+         * @param index 候选容量下标
+         * @return 缺失率
+         */
+        double missRatio(int index) {
+            return 1d - (double) this.hits[index] / this.accesses;
+        }
+    }
+
+    /**
+     * 按权重限制容量的影子LRU
+     */
+    private static final class Ghost {
+        private final long capacity;
+        private final LinkedHashMap<Object, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long used;
+
+        Ghost(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * 访问key，缺失时按LRU淘汰后写入
+         *
+         * @param key 缓存key
+         * @param weight 条目权重
+         * @return true-命中
+         */
+        boolean access(Object key, long weight) {
+            if (null != this.entries.get(key)) {
+                return true;
+            }
+            this.entries.put(key, weight);
+            this.used += weight;
+            Iterator<Map.Entry<Object, Long>> iterator = this.entries.entrySet().iterator();
+            while (this.used > this.capacity && this.entries.size() > 1 && iterator.hasNext()) {
+                this.used -= iterator.next().getValue();
+                iterator.remove();
+            }
+            return false;
+        }
+    }
+}
@@ -7,12 +7,18 @@ import com.kuaikan.common.perfcounter.common.CounterGaugeMetric;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.example.constant.CaffeineCacheConstants;
 import org.example.spi.CaffeineCache;
 import org.springframework.util.CollectionUtils;
 
 import java.text.DecimalFormat;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * 缓存统计装饰器
@@ -21,7 +27,7 @@ import java.util.Map;
  * @date 2019/11/15
  */
 @Slf4j
-public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
+public class MonitorDecorator extends BaseDecorator implements CaffeineCache, CacheMetricsReporter.MetricFlusher {
 
     private static final String TAG_PATTERN = "name=%s,type=%s";
     private static final String METRIC_NAME = "CAFFEINE_MONITOR";
@@ -30,53 +36,200 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
     private static final String MISS_TAG = "miss";
     private static final String REMOVE_TAG = "remove";
     private static final String DESC = "%s本地缓存统计信息";
-    private static final String STAT_FORMAT = "cacheName:(%s), stat:(%s), estimatedSize:(%s), hitRate:(%s)";
+    private static final String STAT_FORMAT = "cacheName:(%s), stat:(%s), estimatedSize:(%s), hitRate:(%s), latency:(%s)";
+    private static final String WEIGHTED_STAT_FORMAT = "cacheName:(%s), stat:(%s), estimatedSize:(%s), weightedSize:(%s), hitRate:(%s), latency:(%s)";
+    private static final String HOT_KEY_FORMAT = "%s, hotKeys:(%s), hotMissKeys:(%s)";
 
     /**
      * 计数上报组件
      */
     private CounterGaugeMetric counterGaugeMetric;
 
+    /**
+     * 上报标签，构造时计算一次
+     */
+    private final Object[] requestTags;
+    private final Object[] hitTags;
+    private final Object[] missTags;
+    private final Object[] removeTags;
+
+    /**
+     * 是否本地累加后定时上报
+     */
+    private final boolean accumulate;
+    /**
+     * 分段累加计数器，仅累加模式使用
+     */
+    private final LongAdder hitCounter = new LongAdder();
+    private final LongAdder missCounter = new LongAdder();
+    private final LongAdder removeCounter = new LongAdder();
+
+    /**
+     * 请求及未命中热点key统计，未开启时为null
+     */
+    private final HotKeySketch requestSketch;
+    private final HotKeySketch missSketch;
+    /**
+     * 上一统计周期的热点key
+     */
+    private volatile String hotKeys = "[]";
+    private volatile String hotMissKeys = "[]";
+
+    /**
+     * 各操作延迟直方图，未开启延迟统计时为null
+     */
+    private final LatencyHistogram getValueLatency;
+    private final LatencyHistogram getValuesLatency;
+    private final LatencyHistogram getValueAndFormatLatency;
+    private final LatencyHistogram getValuesAndFormatLatency;
+
     public MonitorDecorator(CaffeineCache cache) {
+        this(cache, false);
+    }
+
+    /**
+     * @param cache 被装饰缓存
+     * @param accumulate true-热路径只累加计数，由后台线程按固定间隔汇总上报
+     */
+    public MonitorDecorator(CaffeineCache cache, boolean accumulate) {
+        this(cache, accumulate, 0);
+    }
+
+    /**
+     * @param cache 被装饰缓存
+     * @param accumulate true-热路径只累加计数，由后台线程按固定间隔汇总上报
+     * @param hotKeyTopK 每个上报周期统计的热点key数，0-不统计
+     */
+    public MonitorDecorator(CaffeineCache cache, boolean accumulate, int hotKeyTopK) {
+        this(cache, accumulate, hotKeyTopK, CaffeineCacheConstants.DEFAULT_RECORD_LATENCY);
+    }
+
+    /**
+     * @param cache 被装饰缓存
+     * @param accumulate true-热路径只累加计数，由后台线程按固定间隔汇总上报
+     * @param hotKeyTopK 每个上报周期统计的热点key数，0-不统计
+     * @param recordLatency 是否记录读取延迟直方图，关闭后读取路径不再计时
+     */
+    public MonitorDecorator(CaffeineCache cache, boolean accumulate, int hotKeyTopK, boolean recordLatency) {
         super(cache);
         String name = this.cache.getCacheName();
         this.counterGaugeMetric = new CaffeineCacheMonitorMetric(METRIC_NAME, TAG_PATTERN, String.format(DESC, name));
+        this.requestTags = new Object[] { name, REQUEST_TAG };
+        this.hitTags = new Object[] { name, HIT_TAG };
+        this.missTags = new Object[] { name, MISS_TAG };
+        this.removeTags = new Object[] { name, REMOVE_TAG };
+        this.getValueLatency = recordLatency ? CacheLatencyMonitor.histogram(name, CacheLatencyMonitor.OP_GET_VALUE) : null;
+        this.getValuesLatency = recordLatency ? CacheLatencyMonitor.histogram(name, CacheLatencyMonitor.OP_GET_VALUES) : null;
+        this.getValueAndFormatLatency = recordLatency ? CacheLatencyMonitor.histogram(name, CacheLatencyMonitor.OP_GET_VALUE_AND_FORMAT) : null;
+        this.getValuesAndFormatLatency = recordLatency ? CacheLatencyMonitor.histogram(name, CacheLatencyMonitor.OP_GET_VALUES_AND_FORMAT) : null;
+        this.accumulate = accumulate;
+        this.requestSketch = hotKeyTopK > 0 ? new HotKeySketch(hotKeyTopK) : null;
+        this.missSketch = hotKeyTopK > 0 ? new HotKeySketch(hotKeyTopK) : null;
+        if (accumulate || hotKeyTopK > 0) {
+            CacheMetricsReporter.register(this);
+        }
     }
 
     @Override
     public Object getValue(Object id) {
+        long start = null == this.getValueLatency ? 0L : System.nanoTime();
         Object result = cache.getValue(id);
-        monitor(result);
+        record(this.getValueLatency, start);
+        monitor(id, result);
         return result;
     }
 
     @Override
     public <K> Map<K, Object> getValues(Collection<K> ids) {
+        long start = null == this.getValuesLatency ? 0L : System.nanoTime();
         Map<K, Object> result = cache.getValues(ids);
+        record(this.getValuesLatency, start);
         monitorBatch(ids, result);
         return result;
     }
 
     @Override
     public <K, T> T getValueAndFormat(K id, Class<T> formatClass) {
+        long start = null == this.getValueAndFormatLatency ? 0L : System.nanoTime();
         T result = cache.getValueAndFormat(id, formatClass);
-        monitor(result);
+        record(this.getValueAndFormatLatency, start);
+        monitor(id, result);
         return result;
     }
 
     @Override
     public <K, T> Map<K, T> getValuesAndFormat(Collection<K> ids, Class<T> formatClass) {
+        long start = null == this.getValuesAndFormatLatency ? 0L : System.nanoTime();
         Map<K, T> result = cache.getValuesAndFormat(ids, formatClass);
+        record(this.getValuesAndFormatLatency, start);
         monitorBatch(ids, result);
         return result;
     }
 
+    /**
+     * 加载完成时按结果统计命中，延迟只记录调用耗时
+     */
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id) {
+        long start = null == this.getValueLatency ? 0L : System.nanoTime();
+        CompletableFuture<Object> future = super.getValueAsync(id);
+        record(this.getValueLatency, start);
+        future.whenComplete((value, throwable) -> monitor(id, null == throwable ? value : null));
+        return future;
+    }
+
+    @Override
+    public <K> CompletableFuture<Map<K, Object>> getValuesAsync(Collection<K> ids) {
+        long start = null == this.getValuesLatency ? 0L : System.nanoTime();
+        CompletableFuture<Map<K, Object>> future = super.getValuesAsync(ids);
+        record(this.getValuesLatency, start);
+        future.whenComplete((values, throwable) -> monitorBatch(ids, null == throwable ? values : null));
+        return future;
+    }
+
+    /**
+     * 本次调用触发加载时统计为未命中，共享其他调用方在途加载或已缓存时统计为命中
+     */
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        long start = null == this.getValueLatency ? 0L : System.nanoTime();
+        AtomicBoolean loaded = new AtomicBoolean();
+        CompletableFuture<Object> future = super.getValueAsync(id, key -> {
+            loaded.set(true);
+            return loader.apply(key);
+        });
+        record(this.getValueLatency, start);
+        monitor(id, loaded.get() ? null : Boolean.TRUE);
+        return future;
+    }
+
+    @Override
+    public Object getValueByLong(long id) {
+        long start = null == this.getValueLatency ? 0L : System.nanoTime();
+        Object result = cache.getValueByLong(id);
+        record(this.getValueLatency, start);
+        monitor(id, result);
+        return result;
+    }
+
     @Override
     public void removeKey(Object id) {
         this.cache.removeKey(id);
         monitorRemove(id);
     }
 
+    @Override
+    public void removeKeyByLong(long id) {
+        this.cache.removeKeyByLong(id);
+        monitorRemove(id);
+    }
+
+    @Override
+    public <K> void removeKeys(Collection<K> ids) {
+        this.cache.removeKeys(ids);
+        monitorRemoveBatch(ids);
+    }
+
     @Override
     public String getCacheStat() {
         if (null == this.cache) {
@@ -88,17 +241,89 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
         String name = this.cache.getCacheName();
         try {
             DecimalFormat df = new DecimalFormat("#.##%");
-            return String.format(STAT_FORMAT, name, stats, cache.estimatedSize(), df.format(stats.hitRate()));
+            long weightedSize = CaffeineCacheImpl.getWeightedSize(cache);
+            String stat = weightedSize < 0
+                    ? String.format(STAT_FORMAT, name, stats, cache.estimatedSize(), df.format(stats.hitRate()), CacheLatencyMonitor.describe(name))
+                    : String.format(WEIGHTED_STAT_FORMAT, name, stats, cache.estimatedSize(), weightedSize,
+                            df.format(stats.hitRate()), CacheLatencyMonitor.describe(name));
+            return null == this.requestSketch ? stat : String.format(HOT_KEY_FORMAT, stat, this.hotKeys, this.hotMissKeys);
         } catch (Exception e) {
             log.error("Get cache stats exception! name:{}", name, e);
             return StringUtils.EMPTY;
         }
     }
 
+    /**
+     * 记录操作耗时
+     *
+     * @param histogram 延迟直方图，未开启时为null
+     * @param start 开始时间(纳秒)
+     */
+    private static void record(LatencyHistogram histogram, long start) {
+        if (null != histogram) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 注销定时上报并释放读取延迟直方图，上报剩余累加数据后关闭被装饰缓存
+     */
+    @Override
+    public void close() {
+        CacheMetricsReporter.unregister(this);
+        if (null != this.getValueLatency) {
+            CacheLatencyMonitor.release(getCacheName(), CacheLatencyMonitor.OP_GET_VALUE, CacheLatencyMonitor.OP_GET_VALUES,
+                    CacheLatencyMonitor.OP_GET_VALUE_AND_FORMAT, CacheLatencyMonitor.OP_GET_VALUES_AND_FORMAT);
+        }
+        super.close();
+    }
+
+    /**
+     * 上报累加数据
+     */
+    @Override
+    public void flush() {
+        if (null != this.requestSketch) {
+            List<Map.Entry<Object, Long>> requests = this.requestSketch.snapshotAndReset();
+            List<Map.Entry<Object, Long>> misses = this.missSketch.snapshotAndReset();
+            this.hotKeys = requests.toString();
+            this.hotMissKeys = misses.toString();
+            if (!requests.isEmpty()) {
+                log.info("本地缓存name:{} 热点key:{}, 未命中热点key:{}", this.cache.getCacheName(), this.hotKeys, this.hotMissKeys);
+            }
+        }
+        int hit = (int) this.hitCounter.sumThenReset();
+        int miss = (int) this.missCounter.sumThenReset();
+        int remove = (int) this.removeCounter.sumThenReset();
+        if (hit + miss > 0) {
+            PerfCounter.countGauge(hit + miss, this.counterGaugeMetric, this.requestTags);
+            PerfCounter.countGauge(hit, this.counterGaugeMetric, this.hitTags);
+            PerfCounter.countGauge(miss, this.counterGaugeMetric, this.missTags);
+        }
+        if (remove > 0) {
+            PerfCounter.countGauge(remove, this.counterGaugeMetric, this.removeTags);
+        }
+    }
+
     /**
      * 单次统计
      */
-    private <T> void monitor(T value) {
+    private <K, T> void monitor(K id, T value) {
+        if (null != this.requestSketch) {
+            Object key = sketchKey(id);
+            this.requestSketch.record(key);
+            if (null == value) {
+                this.missSketch.record(key);
+            }
+        }
+        if (this.accumulate) {
+            if (null != value) {
+                this.hitCounter.increment();
+            } else {
+                this.missCounter.increment();
+            }
+            return;
+        }
         int requestSize = 1;
         int hitSize = 0;
         if (null != value) {
@@ -109,6 +334,20 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
         }
     }
 
+    /**
+     * 热点key统计使用的key，按缓存key类型转换，1、1L、"1"在STRING类型下计为同一个key
+     *
+     * @param id 原始key
+     * @return 转换后的key，无法转换时为原始key
+     */
+    private Object sketchKey(Object id) {
+        if (null == id || id instanceof CompositeKey) {
+            return id;
+        }
+        Object key = getKeyType().convert(id);
+        return null == key ? id : key;
+    }
+
     /**
      * 批量统计
      */
@@ -116,9 +355,23 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
         if (CollectionUtils.isEmpty(ids)) {
             return;
         }
+        if (null != this.requestSketch) {
+            for (K id : ids) {
+                Object key = sketchKey(id);
+                this.requestSketch.record(key);
+                if (null == result || !result.containsKey(id)) {
+                    this.missSketch.record(key);
+                }
+            }
+        }
+        int requestSize = ids.size();
+        int hitSize = result == null ? 0 : result.size();
+        if (this.accumulate) {
+            this.hitCounter.add(hitSize);
+            this.missCounter.add(requestSize - hitSize);
+            return;
+        }
         if (null != this.counterGaugeMetric) {
-            int requestSize = ids.size();
-            int hitSize = result == null ? 0 : result.size();
             commonMonitor(requestSize, hitSize, requestSize - hitSize);
         }
     }
@@ -131,13 +384,9 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
      * @param miss 未命中数
      */
     private void commonMonitor(int request, int hit, int miss) {
-        String name = this.cache.getCacheName();
-        Object[] requestObj = new Object[] { name, REQUEST_TAG };
-        Object[] hitObj = new Object[] { name, HIT_TAG };
-        Object[] missObj = new Object[] { name, MISS_TAG };
-        PerfCounter.countGauge(request, this.counterGaugeMetric, requestObj);
-        PerfCounter.countGauge(hit, this.counterGaugeMetric, hitObj);
-        PerfCounter.countGauge(miss, this.counterGaugeMetric, missObj);
+        PerfCounter.countGauge(request, this.counterGaugeMetric, this.requestTags);
+        PerfCounter.countGauge(hit, this.counterGaugeMetric, this.hitTags);
+        PerfCounter.countGauge(miss, this.counterGaugeMetric, this.missTags);
     }
 
     /**
@@ -145,9 +394,41 @@ public class MonitorDecorator extends BaseDecorator implements CaffeineCache {
      */
     private <K> void monitorRemove(K id) {
         log.debug("本地缓存name:{} 删除id:{}", this.cache.getCacheName(), id);
-        String name = this.cache.getCacheName();
-        Object[] remove = new Object[] { name, REMOVE_TAG };
-        PerfCounter.countGauge(1, this.counterGaugeMetric, remove);
+        if (this.accumulate) {
+            this.removeCounter.increment();
+            return;
+        }
+        PerfCounter.countGauge(1, this.counterGaugeMetric, this.removeTags);
+    }
+
+    /**
+     * 批量删除统计
+     */
+    private <K> void monitorRemoveBatch(Collection<K> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return;
+        }
+        log.debug("本地缓存name:{} 批量删除size:{}", this.cache.getCacheName(), ids.size());
+        if (this.accumulate) {
+            this.removeCounter.add(ids.size());
+            return;
+        }
+        PerfCounter.countGauge(ids.size(), this.counterGaugeMetric, this.removeTags);
+    }
+
+    /**
+     * 未上报的累加计数
+     */
+    long pendingHits() {
+        return this.hitCounter.sum();
+    }
+
+    long pendingMisses() {
+        return this.missCounter.sum();
+    }
+
+    long pendingRemoves() {
+        return this.removeCounter.sum();
     }
 
     /**
@@ -0,0 +1,113 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+import org.example.spi.CaffeineCache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提前刷新调度，命中的缓存值写入超过刷新时间后在后台重新加载，同一key同时只有一个刷新任务。
+ * 刷新任务在后台线程执行，调用方线程上的事务、安全上下文、请求作用域等ThreadLocal状态不会传递
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+class RefreshAheadScheduler {
+
+    /**
+     * 刷新中的(缓存名, key)
+     */
+    private final Set<SingleFlightLoader.FlightKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 默认刷新线程池，缓存未配置加载线程池时使用
+     */
+    private final ExecutorService executor;
+    /**
+     * 缓存名 - 记录排队时间的默认刷新线程池
+     */
+    private final ConcurrentMap<String, Executor> monitoredExecutors = new ConcurrentHashMap<>();
+
+    RefreshAheadScheduler() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 有界队列只在核心线程占满后才扩容，核心线程数等于最大线程数，空闲时允许回收
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(CaffeineCacheConstants.DEFAULT_REFRESH_THREADS,
+                CaffeineCacheConstants.DEFAULT_REFRESH_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(CaffeineCacheConstants.DEFAULT_REFRESH_QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "caffeine-cache-refresh-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * 缓存值写入时间超过刷新时间时提交后台刷新
+     *
+     * @param cache 缓存
+     * @param key 缓存key
+     * @param refreshAfterWrite 刷新时间(秒)
+     * @param task 刷新任务
+     */
+    void refreshIfStale(CaffeineCache cache, Object key, int refreshAfterWrite, RefreshTask task) {
+        long age = cache.getAge(key, TimeUnit.SECONDS);
+        if (age < refreshAfterWrite) {
+            return;
+        }
+        SingleFlightLoader.FlightKey flightKey = new SingleFlightLoader.FlightKey(cache.getCacheName(), key);
+        if (!this.refreshing.add(flightKey)) {
+            return;
+        }
+        Executor executor = null == cache.getLoaderExecutor() ? monitored(cache.getCacheName()) : cache.getLoaderExecutor();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.refresh();
+                } catch (Throwable t) {
+                    log.error("缓存异步刷新异常, cacheName:{}, key:{}", cache.getCacheName(), key, t);
+                } finally {
+                    this.refreshing.remove(flightKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.refreshing.remove(flightKey);
+            log.warn("缓存异步刷新队列已满, cacheName:{}, key:{}", cache.getCacheName(), key);
+        }
+    }
+
+    /**
+     * 获取记录排队时间的默认刷新线程池
+     *
+     * @param cacheName 缓存名
+     * @return 刷新线程池
+     */
+    private Executor monitored(String cacheName) {
+        return this.monitoredExecutors.computeIfAbsent(cacheName,
+                name -> CacheExecutors.monitored(name, CacheLatencyMonitor.OP_LOADER_QUEUE, this.executor));
+    }
+
+    /**
+     * 刷新任务
+     */
+    @FunctionalInterface
+    interface RefreshTask {
+        /**
+         * 重新加载并回写缓存
+         *
+         * @throws Throwable 加载异常
+         */
+        void refresh() throws Throwable;
+    }
+}
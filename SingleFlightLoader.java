@@ -0,0 +1,155 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 合并加载器，同一(缓存名, key)同时只有一个在途加载，其余调用方等待其结果。
+ * 等待超时后由一个等待方接替加载，其余等待方继续等待接替的加载，等待两轮仍未完成才各自加载；
+ * 等待被中断时继续按上述方式取得结果，返回前恢复中断标记，加载逻辑不会在中断状态下执行
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+class SingleFlightLoader {
+
+    /**
+     * 最多等待轮数，每轮超时后至多一个等待方接替加载
+     */
+    private static final int MAX_WAIT_ROUNDS = 2;
+
+    /**
+     * 在途加载
+     */
+    private final ConcurrentMap<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 合并加载
+     *
+     * @param cacheName 缓存名
+     * @param key 缓存key
+     * @param timeoutMillis 每轮等待在途加载的最长时间(毫秒)
+     * @param loader 加载逻辑
+     * @return 加载结果
+     * @throws Throwable 加载异常
+     */
+    Object load(String cacheName, Object key, long timeoutMillis, Loader loader) throws Throwable {
+        FlightKey flightKey = new FlightKey(cacheName, key);
+        boolean interrupted = false;
+        try {
+            for (int round = 0; ; round++) {
+                CompletableFuture<Object> flight = new CompletableFuture<>();
+                CompletableFuture<Object> existing = this.inFlight.putIfAbsent(flightKey, flight);
+                if (null == existing) {
+                    return lead(flightKey, flight, loader);
+                }
+                try {
+                    return existing.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    log.warn("等待合并加载超时, cacheName:{}, key:{}, timeout:{}ms", cacheName, key, timeoutMillis);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    log.warn("等待合并加载被中断, cacheName:{}, key:{}", cacheName, key);
+                } catch (ExecutionException e) {
+                    throw null == e.getCause() ? e : e.getCause();
+                }
+                if (existing.isDone()) {
+                    return completed(existing);
+                }
+                if (round + 1 >= MAX_WAIT_ROUNDS) {
+                    log.warn("合并加载多轮未完成, 直接加载, cacheName:{}, key:{}", cacheName, key);
+                    return loader.load();
+                }
+                if (this.inFlight.replace(flightKey, existing, flight)) {
+                    return lead(flightKey, flight, loader);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 作为在途加载执行，完成后通知等待方
+     */
+    private Object lead(FlightKey flightKey, CompletableFuture<Object> flight, Loader loader) throws Throwable {
+        try {
+            Object result = loader.load();
+            flight.complete(result);
+            return result;
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            this.inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * 获取已完成的在途加载结果
+     */
+    private static Object completed(CompletableFuture<Object> flight) throws Throwable {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            throw null == e.getCause() ? e : e.getCause();
+        }
+    }
+
+    /**
+     * 加载逻辑
+     */
+    @FunctionalInterface
+    interface Loader {
+        /**
+         * 执行加载
+         *
+         * @return 加载结果
+         * @throws Throwable 加载异常
+         */
+        Object load() throws Throwable;
+    }
+
+    /**
+     * 在途加载标识
+     */
+    static final class FlightKey {
+        private final String cacheName;
+        private final Object key;
+        private final int hash;
+
+        FlightKey(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+            this.hash = 31 * cacheName.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey that = (FlightKey) o;
+            return this.hash == that.hash && this.cacheName.equals(that.cacheName) && Objects.equals(this.key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
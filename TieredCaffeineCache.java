@@ -0,0 +1,448 @@
+package org.example.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.spi.CacheL2Store;
+import org.example.spi.CaffeineCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 二级缓存，本地Caffeine为一级，{@link CacheL2Store}为多节点共享的二级。
+ * 一级未命中时读二级并回填一级，批量未命中一次调用批量读取二级；写入和删除同时作用于两级。
+ * 二级异常时记录日志并降级为只使用一级。二级key与一级相同，按{@link #getKeyType()}转换，1与"1"在两级中均为同一key。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class TieredCaffeineCache extends BaseDecorator {
+
+    /**
+     * 二级缓存存储
+     */
+    private final CacheL2Store l2Store;
+    /**
+     * 二级缓存失效时间(秒)
+     */
+    private final int l2ExpireAfterWrite;
+
+    /**
+     * @param cache 一级缓存
+     * @param l2Store 二级缓存存储
+     * @param l2ExpireAfterWrite 二级缓存失效时间(秒)，通常大于一级失效时间
+     */
+    public TieredCaffeineCache(CaffeineCache cache, CacheL2Store l2Store, int l2ExpireAfterWrite) {
+        super(cache);
+        this.l2Store = l2Store;
+        this.l2ExpireAfterWrite = l2ExpireAfterWrite;
+    }
+
+    @Override
+    public Object getValue(Object id) {
+        Object value = this.cache.getValue(id);
+        if (null != value || null == id) {
+            return value;
+        }
+        return loadFromL2(id);
+    }
+
+    /**
+     * 一级按long型key读取，未命中时装箱读二级
+     */
+    @Override
+    public Object getValueByLong(long id) {
+        Object value = this.cache.getValueByLong(id);
+        return null != value ? value : loadFromL2(id);
+    }
+
+    @Override
+    public void addValueByLong(long id, Object value) {
+        addValue(id, value);
+    }
+
+    @Override
+    public void removeKeyByLong(long id) {
+        removeKey(id);
+    }
+
+    @Override
+    public <K> Map<K, Object> getValues(Collection<K> ids) {
+        Map<K, Object> result = this.cache.getValues(ids);
+        if (null == result || ids.isEmpty() || result.size() >= ids.size()) {
+            return result;
+        }
+        result.putAll(batchLoadFromL2(missIds(ids, result)));
+        return result;
+    }
+
+    @Override
+    public <K, T> T getValueAndFormat(K id, Class<T> formatClass) {
+        T result = this.cache.getValueAndFormat(id, formatClass);
+        if (null != result || null == id) {
+            return result;
+        }
+        Object value = loadFromL2(id);
+        if (null == value) {
+            return null;
+        }
+        result = this.cache.getValueAndFormat(id, formatClass);
+        return null != result ? result : format(value, formatClass);
+    }
+
+    @Override
+    public <K, T> Map<K, T> getValuesAndFormat(Collection<K> ids, Class<T> formatClass) {
+        Map<K, T> result = this.cache.getValuesAndFormat(ids, formatClass);
+        if (null == result || ids.isEmpty() || result.size() >= ids.size()) {
+            return result;
+        }
+        Map<K, Object> loaded = batchLoadFromL2(missIds(ids, result));
+        for (Map.Entry<K, Object> entry : loaded.entrySet()) {
+            T value = format(entry.getValue(), formatClass);
+            if (null != value) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <K> void addValue(K id, Object value) {
+        this.cache.addValue(id, value);
+        if (null != id && null != value) {
+            l2Put(id, value, this.l2ExpireAfterWrite);
+        }
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values) {
+        int size = this.cache.addValues(values);
+        if (null != values && !values.isEmpty()) {
+            l2PutAll(values);
+        }
+        return size;
+    }
+
+    @Override
+    public <K> void addValue(K id, Object value, long expireAfterWrite, TimeUnit unit) {
+        this.cache.addValue(id, value, expireAfterWrite, unit);
+        if (null != id && null != value) {
+            l2Put(id, value, (int) Math.max(1L, unit.toSeconds(expireAfterWrite)));
+        }
+    }
+
+    /**
+     * 只把一级实际写入的值按指定失效时间写入二级
+     */
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long expireAfterWrite, TimeUnit unit) {
+        if (null == values || values.isEmpty()) {
+            return 0;
+        }
+        int size = 0;
+        int l2ExpireAfterWrite = (int) Math.max(1L, unit.toSeconds(expireAfterWrite));
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            if (null == entry.getKey() || null == entry.getValue()) {
+                continue;
+            }
+            long version = this.cache.getVersion();
+            if (this.cache.addValue(entry.getKey(), entry.getValue(), expireAfterWrite, unit, version)) {
+                l2Put(entry.getKey(), entry.getValue(), l2ExpireAfterWrite);
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long version) {
+        boolean written = this.cache.addValue(id, value, version);
+        if (written) {
+            l2Put(id, value, this.l2ExpireAfterWrite);
+        }
+        return written;
+    }
+
+    @Override
+    public <K> boolean addValue(K id, Object value, long expireAfterWrite, TimeUnit unit, long version) {
+        boolean written = this.cache.addValue(id, value, expireAfterWrite, unit, version);
+        if (written) {
+            l2Put(id, value, (int) Math.max(1L, unit.toSeconds(expireAfterWrite)));
+        }
+        return written;
+    }
+
+    /**
+     * 只把一级实际写入的值写入二级，加载期间已被删除的key不回写二级
+     */
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long version) {
+        if (null == values || values.isEmpty()) {
+            return 0;
+        }
+        Map<K, V> written = new HashMap<>(Math.max(4, (int) (values.size() / 0.75f) + 1));
+        for (Map.Entry<K, V> entry : values.entrySet()) {
+            if (this.cache.addValue(entry.getKey(), entry.getValue(), version)) {
+                written.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!written.isEmpty()) {
+            l2PutAll(written);
+        }
+        return written.size();
+    }
+
+    @Override
+    public void removeKey(Object id) {
+        this.cache.removeKey(id);
+        if (null != id) {
+            l2Remove(Collections.singletonList(id));
+        }
+    }
+
+    @Override
+    public <K> void removeKeys(Collection<K> ids) {
+        this.cache.removeKeys(ids);
+        if (null != ids && !ids.isEmpty()) {
+            l2Remove(ids);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        this.cache.removeAll();
+        try {
+            this.l2Store.clear(getCacheName());
+        } catch (Exception e) {
+            log.error("清空二级缓存异常, cacheName:{}", getCacheName(), e);
+        }
+    }
+
+    /**
+     * 一级未命中时在加载线程池中读二级，调用线程不阻塞；加载线程池拒绝时在调用线程读二级
+     */
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id) {
+        Object value = this.cache.getValue(id);
+        if (null != value || null == id) {
+            return CompletableFuture.completedFuture(value);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> loadFromL2(id), l2Executor());
+        } catch (RejectedExecutionException e) {
+            log.warn("二级缓存异步读取被拒绝, 在调用线程读取, cacheName:{}", getCacheName());
+            return CompletableFuture.completedFuture(loadFromL2(id));
+        }
+    }
+
+    /**
+     * 一级未命中时在加载线程池中读二级，二级也未命中才调用loader；加载期间key被删除时一级丢弃结果，二级也不写入
+     */
+    @Override
+    public <K> CompletableFuture<Object> getValueAsync(K id, Function<? super K, CompletableFuture<Object>> loader) {
+        return super.getValueAsync(id, key -> {
+            long version = this.cache.getVersion();
+            return l2GetAsync(key).thenCompose(value -> {
+                if (null != value) {
+                    return CompletableFuture.completedFuture(value);
+                }
+                return loader.apply(key).thenApply(result -> {
+                    if (null != result && this.cache.addValue(key, result, version)) {
+                        l2Put(key, result, this.l2ExpireAfterWrite);
+                    }
+                    return result;
+                });
+            });
+        });
+    }
+
+    /**
+     * 在加载线程池中读二级，加载线程池拒绝时在调用线程读取
+     */
+    private CompletableFuture<Object> l2GetAsync(Object id) {
+        try {
+            return CompletableFuture.supplyAsync(() -> l2Get(id), l2Executor());
+        } catch (RejectedExecutionException e) {
+            log.warn("二级缓存异步读取被拒绝, 在调用线程读取, cacheName:{}", getCacheName());
+            return CompletableFuture.completedFuture(l2Get(id));
+        }
+    }
+
+    /**
+     * 异步读取二级的线程池，优先使用缓存配置的加载线程池
+     */
+    private Executor l2Executor() {
+        Executor executor = getLoaderExecutor();
+        return null == executor ? CacheExecutors.loader() : executor;
+    }
+
+    /**
+     * 从二级读取单个值并带版本回填一级
+     */
+    private Object loadFromL2(Object id) {
+        long version = this.cache.getVersion();
+        Object value = l2Get(id);
+        if (null != value) {
+            this.cache.addValue(id, value, version);
+        }
+        return value;
+    }
+
+    /**
+     * 一次调用从二级批量读取并带版本回填一级
+     */
+    private <K> Map<K, Object> batchLoadFromL2(List<K> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // 二级key - 原始key，多个原始key转换为同一二级key时均返回
+        Map<Object, List<K>> l2Keys = new HashMap<>(Math.max(4, (int) (ids.size() / 0.75f) + 1));
+        for (K id : ids) {
+            Object l2Key = l2Key(id);
+            if (null != l2Key) {
+                l2Keys.computeIfAbsent(l2Key, k -> new ArrayList<>(1)).add(id);
+            }
+        }
+        if (l2Keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        long version = this.cache.getVersion();
+        Map<Object, Object> loaded;
+        try {
+            loaded = this.l2Store.multiGet(getCacheName(), l2Keys.keySet());
+        } catch (Exception e) {
+            log.error("批量读取二级缓存异常, cacheName:{}, size:{}", getCacheName(), l2Keys.size(), e);
+            return Collections.emptyMap();
+        }
+        if (null == loaded || loaded.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        this.cache.addValues(loaded, version);
+        Map<K, Object> result = new HashMap<>(Math.max(4, (int) (loaded.size() / 0.75f) + 1));
+        for (Map.Entry<Object, Object> entry : loaded.entrySet()) {
+            List<K> originals = l2Keys.get(entry.getKey());
+            if (null != originals && null != entry.getValue()) {
+                for (K id : originals) {
+                    result.put(id, entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按一级的key类型转换二级key，组合key原样使用
+     *
+     * @param id 原始key
+     * @return 二级key，无法转换时为null
+     */
+    private Object l2Key(Object id) {
+        if (null == id || id instanceof CompositeKey) {
+            return id;
+        }
+        return getKeyType().convert(id);
+    }
+
+    /**
+     * 按一级的key类型转换批量写入的二级key，无法转换的key不写入二级
+     */
+    private Map<Object, Object> l2Values(Map<?, ?> values) {
+        Map<Object, Object> converted = new HashMap<>(Math.max(4, (int) (values.size() / 0.75f) + 1));
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            Object l2Key = l2Key(entry.getKey());
+            if (null != l2Key && null != entry.getValue()) {
+                converted.put(l2Key, entry.getValue());
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * 按一级的key类型转换删除的二级key
+     */
+    private List<Object> l2Keys(Collection<?> ids) {
+        List<Object> converted = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            Object l2Key = l2Key(id);
+            if (null != l2Key) {
+                converted.add(l2Key);
+            }
+        }
+        return converted;
+    }
+
+    private static <K> List<K> missIds(Collection<K> ids, Map<K, ?> hits) {
+        List<K> missIds = new ArrayList<>(ids.size() - hits.size());
+        for (K id : ids) {
+            if (null != id && !hits.containsKey(id)) {
+                missIds.add(id);
+            }
+        }
+        return missIds;
+    }
+
+    private static <T> T format(Object value, Class<T> formatClass) {
+        if (formatClass.isInstance(value)) {
+            return formatClass.cast(value);
+        }
+        return JsonUtils.findObject(String.valueOf(value), formatClass);
+    }
+
+    private Object l2Get(Object id) {
+        Object l2Key = l2Key(id);
+        if (null == l2Key) {
+            return null;
+        }
+        try {
+            return this.l2Store.get(getCacheName(), l2Key);
+        } catch (Exception e) {
+            log.error("读取二级缓存异常, cacheName:{}, id:{}", getCacheName(), id, e);
+            return null;
+        }
+    }
+
+    private void l2Put(Object id, Object value, int expireAfterWrite) {
+        Object l2Key = l2Key(id);
+        if (null == l2Key) {
+            return;
+        }
+        try {
+            this.l2Store.put(getCacheName(), l2Key, value, expireAfterWrite);
+        } catch (Exception e) {
+            log.error("写入二级缓存异常, cacheName:{}, id:{}", getCacheName(), id, e);
+        }
+    }
+
+    private void l2PutAll(Map<?, ?> values) {
+        Map<Object, Object> converted = l2Values(values);
+        if (converted.isEmpty()) {
+            return;
+        }
+        try {
+            this.l2Store.putAll(getCacheName(), converted, this.l2ExpireAfterWrite);
+        } catch (Exception e) {
+            log.error("批量写入二级缓存异常, cacheName:{}, size:{}", getCacheName(), values.size(), e);
+        }
+    }
+
+    private void l2Remove(Collection<?> ids) {
+        List<Object> converted = l2Keys(ids);
+        if (converted.isEmpty()) {
+            return;
+        }
+        try {
+            this.l2Store.remove(getCacheName(), converted);
+        } catch (Exception e) {
+            log.error("删除二级缓存异常, cacheName:{}, size:{}", getCacheName(), ids.size(), e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.core;
+
+import org.example.spi.CacheValueCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存值压缩器，每个缓存一个，超过阈值的String/byte[]压缩后保存，读取时解压，并统计压缩率和解压耗时
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class ValueCompressor {
+
+    private static final String STAT_FORMAT = "compressed:(%d), ratio:(%.3f), decompressed:(%d), decompressedBytes:(%d)";
+
+    /**
+     * 编解码器
+     */
+    private final CacheValueCodec codec;
+    /**
+     * 压缩阈值(字节)，String按字符数估算
+     */
+    private final int threshold;
+    /**
+     * 解压耗时
+     */
+    private final LatencyHistogram decodeLatency;
+    /**
+     * 已压缩条目数、压缩前后总字节数
+     */
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    /**
+     * 解压次数及解压时分配的估算字节数，每次读取压缩值都会重新分配原始字节及String
+     */
+    private final LongAdder decompressedCount = new LongAdder();
+    private final LongAdder decompressedBytes = new LongAdder();
+
+    ValueCompressor(String cacheName, CacheValueCodec codec, int threshold) {
+        this.codec = codec;
+        this.threshold = threshold;
+        this.decodeLatency = CacheLatencyMonitor.histogram(cacheName, CacheLatencyMonitor.OP_DECOMPRESS);
+    }
+
+    /**
+     * 按阈值压缩缓存值
+     *
+     * @param value 原始值
+     * @return 压缩后的值，未达到阈值、类型不支持或压缩无收益时返回原始值
+     */
+    Object compress(Object value) {
+        boolean text = value instanceof String;
+        if (!text && !(value instanceof byte[])) {
+            return value;
+        }
+        if ((text ? ((String) value).length() : ((byte[]) value).length) < this.threshold) {
+            return value;
+        }
+        byte[] raw = text ? ((String) value).getBytes(StandardCharsets.UTF_8) : (byte[]) value;
+        byte[] data = this.codec.compress(raw);
+        if (null == data) {
+            return value;
+        }
+        this.compressedCount.increment();
+        this.rawBytes.add(raw.length);
+        this.compressedBytes.add(data.length);
+        return new Compressed(this, data, raw.length, text);
+    }
+
+    /**
+     * 获取压缩统计
+     *
+     * @return 已压缩条目数、压缩后/压缩前字节比、解压次数及解压分配的估算字节数
+     */
+    String describe() {
+        long raw = this.rawBytes.sum();
+        return String.format(STAT_FORMAT, this.compressedCount.sum(), raw == 0 ? 1d : (double) this.compressedBytes.sum() / raw,
+                this.decompressedCount.sum(), this.decompressedBytes.sum());
+    }
+
+    /**
+     * 压缩后的缓存值
+     */
+    static final class Compressed {
+        private final ValueCompressor compressor;
+        private final byte[] data;
+        private final int originalLength;
+        private final boolean text;
+
+        Compressed(ValueCompressor compressor, byte[] data, int originalLength, boolean text) {
+            this.compressor = compressor;
+            this.data = data;
+            this.originalLength = originalLength;
+            this.text = text;
+        }
+
+        /**
+         * 获取压缩后的字节，用于估算条目大小
+         */
+        byte[] getData() {
+            return this.data;
+        }
+
+        /**
+         * 解压为原始值
+         *
+         * @return String或byte[]
+         */
+        Object decompress() {
+            long start = System.nanoTime();
+            byte[] raw = this.compressor.codec.decompress(this.data, this.originalLength);
+            Object value = this.text ? new String(raw, StandardCharsets.UTF_8) : raw;
+            this.compressor.decodeLatency.record(System.nanoTime() - start);
+            this.compressor.decompressedCount.increment();
+            // 原始字节数组，文本再按最坏情况每字符2字节估算String
+            this.compressor.decompressedBytes.add(this.text ? 3L * this.originalLength : this.originalLength);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package org.example.core;
+
+import com.kuaikan.common.perfcounter.PerfCounter;
+import com.kuaikan.common.perfcounter.common.CounterGaugeMetric;
+import lombok.extern.slf4j.Slf4j;
+import org.example.constant.CaffeineCacheConstants;
+import org.example.spi.CaffeineCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步写入装饰器，addValue/addValues进入有界队列后立即返回，由后台线程按批写入被装饰缓存。
+ * 入队时记录缓存版本，写入时按版本丢弃入队后被删除的key，删除不会被排在其前面的旧写入覆盖。
+ * 带版本的写入沿用调用方的加载版本，指定失效时间的写入在消费时按该失效时间写入。写入在队列消费前不可见；
+ * 需要立即得到写入结果时使用{@link #addValueNow(Object, Object, long)}同步写入，
+ * 同步写入的key记录写入序号，队列中序号更早的同key写入在消费时跳过，不会覆盖同步写入的值。
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Slf4j
+public class WriteBehindDecorator extends BaseDecorator implements CacheMetricsReporter.MetricFlusher {
+
+    private static final String TAG_PATTERN = "name=%s,type=%s";
+    private static final String METRIC_NAME = "CAFFEINE_WRITE_BEHIND";
+    private static final String DESC = "%s本地缓存异步写入统计";
+    private static final long POLL_TIMEOUT_MILLIS = 100L;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000L;
+
+    /**
+     * 队列满时的处理方式，丢弃写入只会导致后续读取未命中，不影响一致性
+     */
+    public enum Backpressure {
+        /**
+         * 等待队列空间，超过等待时间后丢弃本次写入
+         */
+        BLOCK,
+        /**
+         * 丢弃本次写入
+         */
+        DROP_NEWEST,
+        /**
+         * 丢弃队列中最早的写入
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * 待写入队列
+     */
+    private final BlockingQueue<PendingWrite> queue;
+    /**
+     * 每批最大写入数
+     */
+    private final int batchSize;
+    /**
+     * 队列满时的处理方式
+     */
+    private final Backpressure backpressure;
+    /**
+     * 消费线程
+     */
+    private final Thread drainer;
+    private volatile boolean running = true;
+    /**
+     * 关闭后写入与剩余队列数据在同一锁内按顺序写入
+     */
+    private final Object closeLock = new Object();
+    /**
+     * JVM关闭时写入剩余数据，close时移除
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * 写入序号
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * 同步写入的key - 写入序号，队列中序号更小的同key写入消费时跳过；消费越过该序号后移除
+     */
+    private final ConcurrentMap<Object, Long> syncWrites = new ConcurrentHashMap<>();
+
+    /**
+     * 入队到写入的延迟
+     */
+    private final LatencyHistogram lagLatency;
+    /**
+     * 丢弃的写入数
+     */
+    private final LongAdder dropped = new LongAdder();
+    private final CounterGaugeMetric counterGaugeMetric;
+    private final Object[] depthTags;
+    private final Object[] droppedTags;
+
+    public WriteBehindDecorator(CaffeineCache cache) {
+        this(cache, CaffeineCacheConstants.DEFAULT_WRITE_BEHIND_QUEUE_SIZE, CaffeineCacheConstants.DEFAULT_WRITE_BEHIND_BATCH_SIZE,
+                Backpressure.BLOCK);
+    }
+
+    /**
+     * @param cache 被装饰缓存
+     * @param queueSize 队列长度
+     * @param batchSize 每批最大写入数
+     * @param backpressure 队列满时的处理方式
+     */
+    public WriteBehindDecorator(CaffeineCache cache, int queueSize, int batchSize, Backpressure backpressure) {
+        super(cache);
+        String name = this.cache.getCacheName();
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.backpressure = backpressure;
+        this.lagLatency = CacheLatencyMonitor.histogram(name, CacheLatencyMonitor.OP_WRITE_BEHIND_LAG);
+        this.counterGaugeMetric = new MonitorDecorator.CaffeineCacheMonitorMetric(METRIC_NAME, TAG_PATTERN, String.format(DESC, name));
+        this.depthTags = new Object[] { name, "depth" };
+        this.droppedTags = new Object[] { name, "dropped" };
+        this.drainer = new Thread(this::drainLoop, "caffeine-cache-write-behind-" + name);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+        CacheMetricsReporter.register(this);
+        this.shutdownHook = new Thread(this::close, "caffeine-cache-write-behind-shutdown-" + name);
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    @Override
+    public <K> void addValue(K id, Object value) {
+        if (null == id || null == value) {
+            return;
+        }
+        enqueue(new PendingWrite(id, value, null, this.cache.getVersion(), 0L, this.sequence.incrementAndGet()));
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values) {
+        return enqueueValues(values, this.cache.getVersion(), 0L);
+    }
+
+    @Override
+    public void addValueByLong(long id, Object value) {
+        addValue(id, value);
+    }
+
+    /**
+     * 入队后由消费线程按调用方版本写入，加载期间key被删除时消费时丢弃
+     *
+     * @return true-已入队，false-队列已满丢弃
+     */
+    @Override
+    public <K> boolean addValue(K id, Object value, long version) {
+        if (null == id || null == value) {
+            return false;
+        }
+        return enqueue(new PendingWrite(id, value, null, version, 0L, this.sequence.incrementAndGet()));
+    }
+
+    /**
+     * 入队后由消费线程按调用方版本写入
+     *
+     * @return 入队行数
+     */
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long version) {
+        return enqueueValues(values, version, 0L);
+    }
+
+    @Override
+    public <K> void addValue(K id, Object value, long expireAfterWrite, TimeUnit unit) {
+        addValue(id, value, expireAfterWrite, unit, this.cache.getVersion());
+    }
+
+    @Override
+    public <K, V> int addValues(Map<K, V> values, long expireAfterWrite, TimeUnit unit) {
+        return enqueueValues(values, this.cache.getVersion(), Math.max(1L, unit.toNanos(expireAfterWrite)));
+    }
+
+    /**
+     * 入队后由消费线程按调用方版本及指定失效时间写入
+     *
+     * @return true-已入队，false-队列已满丢弃
+     */
+    @Override
+    public <K> boolean addValue(K id, Object value, long expireAfterWrite, TimeUnit unit, long version) {
+        if (null == id || null == value) {
+            return false;
+        }
+        long expireNanos = Math.max(1L, unit.toNanos(expireAfterWrite));
+        return enqueue(new PendingWrite(id, value, null, version, expireNanos, this.sequence.incrementAndGet()));
+    }
+
+    /**
+     * 带版本同步写入被装饰缓存，返回实际写入结果，队列中更早的同key写入不会覆盖本次写入
+     *
+     * @param id 缓存id
+     * @param value 缓存值
+     * @param version 开始加载时的缓存版本
+     * @param <K> key类型
+     * @return true-已写入，false-已丢弃
+     */
+    public <K> boolean addValueNow(K id, Object value, long version) {
+        if (null == id || null == value) {
+            return false;
+        }
+        markSyncWrite(id);
+        return this.cache.addValue(id, value, version);
+    }
+
+    /**
+     * 获取队列中待写入数
+     *
+     * @return 待写入数
+     */
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * 停止消费线程并写入队列中剩余数据，再关闭被装饰缓存；JVM关闭时自动调用
+     */
+    @Override
+    public void close() {
+        synchronized (this.closeLock) {
+            if (!this.running) {
+                return;
+            }
+            this.running = false;
+            if (!awaitDrainer()) {
+                return;
+            }
+            drainRemaining(null);
+        }
+        CacheMetricsReporter.unregister(this);
+        CacheLatencyMonitor.release(getCacheName(), CacheLatencyMonitor.OP_WRITE_BEHIND_LAG);
+        try {
+            Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM正在关闭，由shutdown hook调用
+        }
+        super.close();
+    }
+
+    @Override
+    public void flush() {
+        int dropped = (int) this.dropped.sumThenReset();
+        PerfCounter.countGauge(this.queue.size(), this.counterGaugeMetric, this.depthTags);
+        if (dropped > 0) {
+            PerfCounter.countGauge(dropped, this.counterGaugeMetric, this.droppedTags);
+        }
+    }
+
+    /**
+     * 写入队列，队列满时按配置等待或丢弃；关闭后先写入队列中剩余数据再直接写入，保持写入顺序
+     *
+     * @param write 待写入数据
+     * @return true-已入队或已写入
+     */
+    private boolean enqueue(PendingWrite write) {
+        if (!this.running) {
+            synchronized (this.closeLock) {
+                if (!awaitDrainer()) {
+                    return false;
+                }
+                drainRemaining(write);
+            }
+            return true;
+        }
+        if (this.queue.offer(write)) {
+            return afterOffer();
+        }
+        switch (this.backpressure) {
+            case BLOCK:
+                try {
+                    if (this.queue.offer(write, CaffeineCacheConstants.DEFAULT_WRITE_BEHIND_BLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        return afterOffer();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            case DROP_OLDEST:
+                if (null != this.queue.poll()) {
+                    this.dropped.increment();
+                }
+                if (this.queue.offer(write)) {
+                    return afterOffer();
+                }
+                break;
+            default:
+                break;
+        }
+        this.dropped.increment();
+        return false;
+    }
+
+    /**
+     * 批量写入入队
+     *
+     * @param values 缓存key和对应value
+     * @param version 缓存版本
+     * @param expireNanos 失效时间(纳秒)，0-使用统一失效时间
+     * @return 入队行数
+     */
+    private int enqueueValues(Map<?, ?> values, long version, long expireNanos) {
+        if (null == values || values.isEmpty()) {
+            return 0;
+        }
+        PendingWrite write = new PendingWrite(null, null, new LinkedHashMap<>(values), version, expireNanos, this.sequence.incrementAndGet());
+        return enqueue(write) ? values.size() : 0;
+    }
+
+    /**
+     * 入队期间已关闭时，close可能已写完剩余数据，由入队线程按队列顺序写入
+     *
+     * @return true
+     */
+    private boolean afterOffer() {
+        if (!this.running && !this.queue.isEmpty()) {
+            synchronized (this.closeLock) {
+                if (awaitDrainer()) {
+                    drainRemaining(null);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 等待消费线程结束，关闭后剩余数据只能由持有closeLock的线程写入
+     *
+     * @return false-消费线程未在超时时间内结束
+     */
+    private boolean awaitDrainer() {
+        if (Thread.currentThread() == this.drainer) {
+            return true;
+        }
+        try {
+            this.drainer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.drainer.isAlive()) {
+            log.warn("异步写入线程未在超时时间内结束, cacheName:{}, depth:{}", getCacheName(), this.queue.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 写入队列中剩余数据，调用方持有closeLock
+     *
+     * @param last 最后写入的数据，可为null
+     */
+    private void drainRemaining(PendingWrite last) {
+        List<PendingWrite> remaining = new ArrayList<>(this.queue.size() + 1);
+        this.queue.drainTo(remaining);
+        if (null != last) {
+            remaining.add(last);
+        }
+        apply(remaining);
+    }
+
+    /**
+     * 记录同步写入的key，使队列中更早的同key写入失效
+     *
+     * @param id 缓存key
+     */
+    private void markSyncWrite(Object id) {
+        Object key = syncKey(id);
+        if (null != key) {
+            this.syncWrites.put(key, this.sequence.incrementAndGet());
+        }
+    }
+
+    /**
+     * 按被装饰缓存的key类型归一化key，1与"1"视为同一key
+     */
+    private Object syncKey(Object id) {
+        if (null == id || id instanceof CompositeKey) {
+            return id;
+        }
+        return getKeyType().convert(id);
+    }
+
+    /**
+     * 队列中的写入是否已被之后的同步写入取代
+     */
+    private boolean superseded(Object id, long sequence) {
+        Object key = syncKey(id);
+        Long syncSequence = null == key ? null : this.syncWrites.get(key);
+        return null != syncSequence && syncSequence > sequence;
+    }
+
+    /**
+     * 消费循环
+     */
+    private void drainLoop() {
+        List<PendingWrite> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            try {
+                long idleSequence = this.sequence.get();
+                PendingWrite first = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    // 队列已空，之前的同步写入不会再被队列中的写入覆盖
+                    if (!this.syncWrites.isEmpty()) {
+                        this.syncWrites.values().removeIf(sequence -> sequence <= idleSequence);
+                    }
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, this.batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("异步写入缓存异常, cacheName:{}", getCacheName(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 按批写入，相同版本且使用统一失效时间的连续单条写入合并为一次批量写入，跳过已被同步写入取代的key
+     *
+     * @param batch 待写入数据
+     */
+    private void apply(List<PendingWrite> batch) {
+        Map<Object, Object> merged = new LinkedHashMap<>();
+        long mergedVersion = 0L;
+        long appliedSequence = 0L;
+        long now = System.nanoTime();
+        boolean checkSync = !this.syncWrites.isEmpty();
+        for (PendingWrite write : batch) {
+            boolean mergeable = null == write.values && 0L == write.expireNanos;
+            if (!merged.isEmpty() && (!mergeable || write.version != mergedVersion)) {
+                this.cache.addValues(merged, mergedVersion);
+                merged.clear();
+            }
+            if (null != write.values) {
+                Map<?, ?> values = checkSync ? withoutSuperseded(write) : write.values;
+                if (write.expireNanos > 0) {
+                    values.forEach((id, value) -> this.cache.addValue(id, value, write.expireNanos, TimeUnit.NANOSECONDS, write.version));
+                } else if (!values.isEmpty()) {
+                    this.cache.addValues(values, write.version);
+                }
+            } else if (!checkSync || !superseded(write.id, write.sequence)) {
+                if (write.expireNanos > 0) {
+                    this.cache.addValue(write.id, write.value, write.expireNanos, TimeUnit.NANOSECONDS, write.version);
+                } else {
+                    merged.put(write.id, write.value);
+                    mergedVersion = write.version;
+                }
+            }
+            appliedSequence = Math.max(appliedSequence, write.sequence);
+            this.lagLatency.record(now - write.enqueueNanos);
+        }
+        if (!merged.isEmpty()) {
+            this.cache.addValues(merged, mergedVersion);
+        }
+        if (checkSync) {
+            long applied = appliedSequence;
+            this.syncWrites.values().removeIf(sequence -> sequence < applied);
+        }
+    }
+
+    /**
+     * 去掉批量写入中已被同步写入取代的key
+     */
+    private Map<?, ?> withoutSuperseded(PendingWrite write) {
+        Map<Object, Object> values = new LinkedHashMap<>(write.values);
+        values.keySet().removeIf(id -> superseded(id, write.sequence));
+        return values;
+    }
+
+    /**
+     * 待写入数据，单条写入时values为null，expireNanos为0时使用统一失效时间
+     */
+    private static final class PendingWrite {
+        private final Object id;
+        private final Object value;
+        private final Map<?, ?> values;
+        private final long version;
+        private final long expireNanos;
+        private final long sequence;
+        private final long enqueueNanos = System.nanoTime();
+
+        PendingWrite(Object id, Object value, Map<?, ?> values, long version, long expireNanos, long sequence) {
+            this.id = id;
+            this.value = value;
+            this.values = values;
+            this.version = version;
+            this.expireNanos = expireNanos;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.benchmark;
+
+import org.example.CaffeineCacheManager;
+import org.example.core.CaffeineCacheAop;
+import org.example.core.CaffeineCacheImpl;
+import org.example.spi.AutoCache;
+import org.example.spi.CaffeineCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 经Spring AOP代理的@AutoCache端到端开销：命中、未命中及未代理的直接调用
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutoCacheAopBenchmark {
+
+    private static final String CACHE_NAME = "benchmark-aop";
+    private static final long HIT_KEY = 1L;
+
+    AnnotationConfigApplicationContext context;
+    ItemService proxied;
+    ItemService direct;
+    CaffeineCache cache;
+    final AtomicLong missKey = new AtomicLong(1_000_000L);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.context = new AnnotationConfigApplicationContext(AopConfig.class);
+        this.proxied = this.context.getBean(ItemService.class);
+        this.direct = new ItemService();
+        this.cache = this.context.getBean(CaffeineCache.class);
+        this.proxied.getItem(HIT_KEY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    public Object hit() {
+        return this.proxied.getItem(HIT_KEY);
+    }
+
+    @Benchmark
+    public Object miss() {
+        return this.proxied.getItem(this.missKey.incrementAndGet());
+    }
+
+    @Benchmark
+    public Object direct() {
+        return this.direct.getItem(HIT_KEY);
+    }
+
+    /**
+     * 被代理的业务方法，返回新对象模拟加载
+     */
+    public static class ItemService {
+
+        @AutoCache(cacheName = CACHE_NAME, keyIndex = 0, resultClass = BenchmarkItem.class)
+        public BenchmarkItem getItem(Long id) {
+            BenchmarkItem item = new BenchmarkItem();
+            item.setId(id);
+            item.setName("item-" + id);
+            item.setPrice(id * 100);
+            return item;
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    public static class AopConfig {
+
+        @Bean
+        public CaffeineCache benchmarkCache() {
+            return new CaffeineCacheImpl(CACHE_NAME, 100_000, 3600);
+        }
+
+        /**
+         * 只需按缓存名返回缓存，覆盖getCache避免依赖注册流程
+         */
+        @Bean(name = "caffeineCacheManager")
+        public CaffeineCacheManager caffeineCacheManager(CaffeineCache benchmarkCache) {
+            return new CaffeineCacheManager() {
+                @Override
+                public CaffeineCache getCache(String cacheName) {
+                    return CACHE_NAME.equals(cacheName) ? benchmarkCache : super.getCache(cacheName);
+                }
+            };
+        }
+
+        @Bean
+        public CaffeineCacheAop caffeineCacheAop() {
+            return new CaffeineCacheAop();
+        }
+
+        @Bean
+        public ItemService itemService() {
+            return new ItemService();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.benchmark;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 基准测试缓存对象
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@Data
+public class BenchmarkItem implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long id;
+    private String name;
+    private long price;
+}
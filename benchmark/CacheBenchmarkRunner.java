@@ -0,0 +1,43 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，CaffeineCacheImplBenchmark按多个线程数分别运行，结果以JSON输出便于升级前后对比
+ *
+ * 仓库未包含基准测试构建模块，运行前需单独建立构建模块：源码目录包含本包及被测源码，依赖jmh-core，
+ * 并以annotation processor方式引入jmh-generator-annprocess生成基准测试代码，打包为包含依赖的可执行jar。
+ *
+ * 用法：java -cp benchmarks.jar org.example.benchmark.CacheBenchmarkRunner [结果目录]
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheBenchmarkRunner {
+
+    private static final int[] THREADS = { 1, 4, 16 };
+
+    public static void main(String[] args) throws RunnerException {
+        String directory = args.length > 0 ? args[0] : ".";
+        for (int threads : THREADS) {
+            run(CaffeineCacheImplBenchmark.class.getSimpleName(), threads, directory);
+        }
+        run(MonitorDecoratorBenchmark.class.getSimpleName(), 4, directory);
+        run(FormatBenchmark.class.getSimpleName(), 1, directory);
+        run(AutoCacheAopBenchmark.class.getSimpleName(), 1, directory);
+    }
+
+    private static void run(String benchmark, int threads, String directory) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(benchmark)
+                .threads(threads)
+                .resultFormat(ResultFormatType.JSON)
+                .result(String.format("%s/%s-t%d.json", directory, benchmark, threads))
+                .build();
+        new Runner(options).run();
+    }
+}
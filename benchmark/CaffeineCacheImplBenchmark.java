@@ -0,0 +1,117 @@
+package org.example.benchmark;
+
+import org.example.core.CaffeineCacheConfig;
+import org.example.core.CaffeineCacheImpl;
+import org.example.spi.CacheKeyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CaffeineCacheImpl读写及批量操作基准，key按Zipf分布访问，线程数由{@link CacheBenchmarkRunner}指定
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaffeineCacheImplBenchmark {
+
+    private static final int KEY_SPACE = 100_000;
+    private static final int BATCH_SIZE = 16;
+    private static final String VALUE = "{\"id\":1,\"name\":\"benchmark\",\"price\":100}";
+
+    /**
+     * Zipf指数
+     */
+    @Param({ "0.8", "0.99", "1.2" })
+    public double exponent;
+    /**
+     * 缓存容量，小于key总数时存在淘汰
+     */
+    @Param({ "10000" })
+    public int maxSize;
+    /**
+     * key类型，STRING-每次访问String.valueOf转换，LONG-直接使用Long
+     */
+    @Param({ "STRING", "LONG" })
+    public CacheKeyType keyType;
+
+    CaffeineCacheImpl cache;
+    long[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.cache = new CaffeineCacheImpl(CaffeineCacheConfig.builder().cacheName("benchmark")
+                .maxSize(this.maxSize).expireAfterWrite(3600).keyType(this.keyType).build());
+        this.keys = ZipfianKeys.generate(KEY_SPACE, this.exponent);
+        for (long key : this.keys) {
+            this.cache.addValue(key, VALUE);
+        }
+    }
+
+    /**
+     * 线程私有的访问游标，各线程从随机位置开始，避免多线程按相同顺序访问同一批key
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.index = ThreadLocalRandom.current().nextInt(ZipfianKeys.SEQUENCE_SIZE);
+        }
+
+        long next(long[] keys) {
+            return keys[this.index++ & (ZipfianKeys.SEQUENCE_SIZE - 1)];
+        }
+    }
+
+    @Benchmark
+    public Object getValue(Cursor cursor) {
+        return this.cache.getValue(cursor.next(this.keys));
+    }
+
+    @Benchmark
+    public void addValue(Cursor cursor) {
+        this.cache.addValue(cursor.next(this.keys), VALUE);
+    }
+
+    @Benchmark
+    public Map<Long, Object> getValues(Cursor cursor) {
+        List<Long> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add(cursor.next(this.keys));
+        }
+        return this.cache.getValues(ids);
+    }
+
+    @Benchmark
+    public Object readMostly(Cursor cursor) {
+        long key = cursor.next(this.keys);
+        if ((key & 15) == 0) {
+            this.cache.addValue(key, VALUE);
+            return null;
+        }
+        return this.cache.getValue(key);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.benchmark;
+
+import org.example.core.CaffeineCacheConfig;
+import org.example.core.CaffeineCacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getValueAndFormat解码开销，对比每次JsonUtils反序列化与开启解码缓存
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+
+    private static final int KEY_SPACE = 1_000;
+    private static final int BATCH_SIZE = 16;
+
+    @Param({ "false", "true" })
+    public boolean decodeCache;
+
+    CaffeineCacheImpl cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.cache = new CaffeineCacheImpl(CaffeineCacheConfig.builder().cacheName("benchmark-format")
+                .maxSize(KEY_SPACE).expireAfterWrite(3600).decodeCache(this.decodeCache).build());
+        for (int i = 0; i < KEY_SPACE; i++) {
+            this.cache.addValue(i, "{\"id\":" + i + ",\"name\":\"item-" + i + "\",\"price\":" + (i * 100) + "}");
+        }
+    }
+
+    /**
+     * 线程私有的访问游标
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.index = ThreadLocalRandom.current().nextInt(KEY_SPACE);
+        }
+
+        int next() {
+            return this.index++ % KEY_SPACE;
+        }
+    }
+
+    @Benchmark
+    public BenchmarkItem getValueAndFormat(Cursor cursor) {
+        return this.cache.getValueAndFormat(cursor.next(), BenchmarkItem.class);
+    }
+
+    @Benchmark
+    public Map<Integer, BenchmarkItem> getValuesAndFormat(Cursor cursor) {
+        List<Integer> ids = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ids.add(cursor.next());
+        }
+        return this.cache.getValuesAndFormat(ids, BenchmarkItem.class);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.benchmark;
+
+import org.example.core.CaffeineCacheImpl;
+import org.example.core.MonitorDecorator;
+import org.example.spi.CaffeineCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MonitorDecorator装饰与原始缓存的读开销对比
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonitorDecoratorBenchmark {
+
+    private static final int KEY_SPACE = 100_000;
+    private static final String VALUE = "{\"id\":1,\"name\":\"benchmark\",\"price\":100}";
+
+    /**
+     * raw-原始缓存，monitor-每次调用上报，accumulate-累加后定期上报
+     */
+    @Param({ "raw", "monitor", "accumulate" })
+    public String mode;
+
+    CaffeineCache cache;
+    long[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CaffeineCache raw = new CaffeineCacheImpl("benchmark-" + this.mode, 10_000, 3600);
+        switch (this.mode) {
+            case "monitor":
+                this.cache = new MonitorDecorator(raw);
+                break;
+            case "accumulate":
+                this.cache = new MonitorDecorator(raw, true);
+                break;
+            default:
+                this.cache = raw;
+        }
+        this.keys = ZipfianKeys.generate(KEY_SPACE, 0.99d);
+        for (long key : this.keys) {
+            this.cache.addValue(key, VALUE);
+        }
+    }
+
+    @Benchmark
+    public Object getValue(CaffeineCacheImplBenchmark.Cursor cursor) {
+        return this.cache.getValue(cursor.next(this.keys));
+    }
+
+    @Benchmark
+    public Object getValueAndFormat(CaffeineCacheImplBenchmark.Cursor cursor) {
+        return this.cache.getValueAndFormat(cursor.next(this.keys), BenchmarkItem.class);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.benchmark;
+
+import java.util.Random;
+
+/**
+ * 预生成的Zipf分布key序列，排名与key之间打散，避免热点key在数值上相邻
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class ZipfianKeys {
+
+    /**
+     * 序列长度，2的幂，便于取模
+     */
+    static final int SEQUENCE_SIZE = 1 << 16;
+    /**
+     * 固定随机种子，保证多次运行结果可复现
+     */
+    private static final long SEED = 0x5DEECE66DL;
+
+    private ZipfianKeys() {
+    }
+
+    /**
+     * 生成key序列
+     *
+     * @param keySpace key总数
+     * @param exponent Zipf指数，0-均匀分布，越大越倾斜
+     * @return key序列，取值[0, keySpace)
+     */
+    static long[] generate(int keySpace, double exponent) {
+        Random random = new Random(SEED);
+        double[] cdf = new double[keySpace];
+        double sum = 0d;
+        for (int rank = 0; rank < keySpace; rank++) {
+            sum += 1d / Math.pow(rank + 1, exponent);
+            cdf[rank] = sum;
+        }
+        long[] rankToKey = new long[keySpace];
+        for (int i = 0; i < keySpace; i++) {
+            rankToKey[i] = i;
+        }
+        for (int i = keySpace - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = rankToKey[i];
+            rankToKey[i] = rankToKey[j];
+            rankToKey[j] = swap;
+        }
+        long[] keys = new long[SEQUENCE_SIZE];
+        for (int i = 0; i < SEQUENCE_SIZE; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = keySpace - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cdf[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            keys[i] = rankToKey[low];
+        }
+        return keys;
+    }
+}
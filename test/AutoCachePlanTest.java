@@ -0,0 +1,65 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 空值缓存判断测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class AutoCachePlanTest {
+
+    @AutoCache(cacheName = "planTest", keyIndex = 0, resultClass = List.class, cacheNull = true)
+    public List<String> list(Long id) {
+        return Collections.emptyList();
+    }
+
+    @AutoCache(cacheName = "planTest", keyIndex = 0, resultClass = TreeSet.class, cacheNull = true)
+    public TreeSet<String> treeSet(Long id) {
+        return new TreeSet<>();
+    }
+
+    @AutoCache(cacheName = "planTest", keyIndex = 0, resultClass = SortedMap.class, cacheNull = true)
+    public SortedMap<String, String> sortedMap(Long id) {
+        return new TreeMap<>();
+    }
+
+    private static AutoCachePlan plan(String name) throws NoSuchMethodException {
+        Method method = AutoCachePlanTest.class.getMethod(name, Long.class);
+        return AutoCachePlan.build(method, null, method.getAnnotation(AutoCache.class));
+    }
+
+    @Test
+    public void rebuildableEmptyResultIsAbsent() throws Exception {
+        AutoCachePlan plan = plan("list");
+
+        Assert.assertTrue(plan.isAbsentResult(null));
+        Assert.assertTrue(plan.isAbsentResult(new ArrayList<>()));
+        Assert.assertEquals(new ArrayList<>(), plan.emptyResult());
+    }
+
+    @Test
+    public void emptyResultOfUnrebuildableTypeIsNotAbsent() throws Exception {
+        AutoCachePlan treeSet = plan("treeSet");
+        Assert.assertTrue(treeSet.isAbsentResult(null));
+        Assert.assertFalse(treeSet.isAbsentResult(new TreeSet<>()));
+
+        AutoCachePlan sortedMap = plan("sortedMap");
+        Assert.assertFalse(sortedMap.isAbsentResult(new TreeMap<>()));
+    }
+
+    @Test
+    public void nonEmptyResultIsNotAbsent() throws Exception {
+        Assert.assertFalse(plan("list").isAbsentResult(Collections.singletonList("a")));
+    }
+}
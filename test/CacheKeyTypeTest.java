@@ -0,0 +1,65 @@
+package org.example.core;
+
+import org.example.spi.CacheKeyType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 缓存key类型转换测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheKeyTypeTest {
+
+    @Test
+    public void longAcceptsIntegralValues() {
+        Assert.assertEquals(1L, CacheKeyType.LONG.convert(1));
+        Assert.assertEquals(1L, CacheKeyType.LONG.convert((short) 1));
+        Assert.assertEquals(1L, CacheKeyType.LONG.convert("1"));
+        Assert.assertEquals(2L, CacheKeyType.LONG.convert(2.0D));
+        Assert.assertEquals(3L, CacheKeyType.LONG.convert(new BigDecimal("3.00")));
+        Assert.assertEquals(4L, CacheKeyType.LONG.convert(BigInteger.valueOf(4L)));
+        Assert.assertEquals(5L, CacheKeyType.LONG.convert(5L));
+    }
+
+    @Test
+    public void longRejectsNonIntegralAndUnparsableValues() {
+        Assert.assertNull(CacheKeyType.LONG.convert(1.5D));
+        Assert.assertNull(CacheKeyType.LONG.convert(1.5F));
+        Assert.assertNull(CacheKeyType.LONG.convert(Double.NaN));
+        Assert.assertNull(CacheKeyType.LONG.convert(1e19D));
+        Assert.assertNull(CacheKeyType.LONG.convert(new BigDecimal("1.5")));
+        Assert.assertNull(CacheKeyType.LONG.convert(BigInteger.ONE.shiftLeft(64)));
+        Assert.assertNull(CacheKeyType.LONG.convert("abc"));
+        Assert.assertNull(CacheKeyType.LONG.convert("1.0"));
+    }
+
+    @Test
+    public void intRejectsOutOfRangeValues() {
+        Assert.assertEquals(7, CacheKeyType.INT.convert(7L));
+        Assert.assertEquals(7, CacheKeyType.INT.convert("7"));
+        Assert.assertNull(CacheKeyType.INT.convert(Integer.MAX_VALUE + 1L));
+        Assert.assertNull(CacheKeyType.INT.convert(Integer.MIN_VALUE - 1L));
+        Assert.assertNull(CacheKeyType.INT.convert(0.5D));
+    }
+
+    @Test
+    public void longKeysMatchBoxedConversion() {
+        for (CacheKeyType keyType : CacheKeyType.values()) {
+            Assert.assertEquals(keyType.name(), keyType.convert(Long.valueOf(42L)), keyType.convert(42L));
+        }
+        Assert.assertNull(CacheKeyType.INT.convert(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void stringKeepsHistoricalBehavior() {
+        Assert.assertEquals("1", CacheKeyType.STRING.convert(1));
+        Assert.assertEquals("1", CacheKeyType.STRING.convert(1L));
+        Assert.assertEquals("1.5", CacheKeyType.STRING.convert(1.5D));
+        Assert.assertEquals("abc", CacheKeyType.STRING.convert("abc"));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 延迟直方图持有者计数测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheLatencyMonitorTest {
+
+    @Test
+    public void sameCacheAndOpShareHistogram() {
+        LatencyHistogram first = CacheLatencyMonitor.histogram("latencyShare", CacheLatencyMonitor.OP_GET_VALUE);
+        LatencyHistogram second = CacheLatencyMonitor.histogram("latencyShare", CacheLatencyMonitor.OP_GET_VALUE);
+
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, CacheLatencyMonitor.histogram("latencyShare", CacheLatencyMonitor.OP_GET_VALUES));
+        CacheLatencyMonitor.release("latencyShare", CacheLatencyMonitor.OP_GET_VALUE, CacheLatencyMonitor.OP_GET_VALUE,
+                CacheLatencyMonitor.OP_GET_VALUES);
+    }
+
+    @Test
+    public void histogramKeptUntilLastOwnerReleases() {
+        LatencyHistogram first = CacheLatencyMonitor.histogram("latencyOwners", CacheLatencyMonitor.OP_LOAD);
+        CacheLatencyMonitor.histogram("latencyOwners", CacheLatencyMonitor.OP_LOAD);
+
+        CacheLatencyMonitor.release("latencyOwners", CacheLatencyMonitor.OP_LOAD);
+        Assert.assertSame(first, CacheLatencyMonitor.histogram("latencyOwners", CacheLatencyMonitor.OP_LOAD));
+
+        CacheLatencyMonitor.release("latencyOwners", CacheLatencyMonitor.OP_LOAD, CacheLatencyMonitor.OP_LOAD);
+        LatencyHistogram recreated = CacheLatencyMonitor.histogram("latencyOwners", CacheLatencyMonitor.OP_LOAD);
+        Assert.assertNotSame(first, recreated);
+        CacheLatencyMonitor.release("latencyOwners", CacheLatencyMonitor.OP_LOAD);
+    }
+
+    @Test
+    public void closingOneDecoratorKeepsOtherRecording() {
+        MonitorDecorator closed = new MonitorDecorator(CacheTestSupport.newCache("latencyClose"), false, 0, true);
+        MonitorDecorator open = new MonitorDecorator(CacheTestSupport.newCache("latencyClose"), false, 0, true);
+        LatencyHistogram shared = CacheLatencyMonitor.histogram("latencyClose", CacheLatencyMonitor.OP_GET_VALUE);
+
+        closed.close();
+        open.getValue("k");
+
+        Assert.assertEquals(1L, shared.snapshotAndReset().getCount());
+        open.close();
+        CacheLatencyMonitor.release("latencyClose", CacheLatencyMonitor.OP_GET_VALUE);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.core;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存开关及运行时调整测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheReconfigureTest {
+
+    @After
+    public void reset() {
+        CacheSwitch.apply(null);
+    }
+
+    @Test
+    public void switchParsesAllAndNamedCaches() {
+        CacheSwitch.apply("ALL");
+        Assert.assertTrue(CacheSwitch.isBypassed("any"));
+
+        CacheSwitch.apply(" a, b ,");
+        Assert.assertTrue(CacheSwitch.isBypassed("a"));
+        Assert.assertTrue(CacheSwitch.isBypassed("b"));
+        Assert.assertFalse(CacheSwitch.isBypassed("c"));
+        Assert.assertFalse(CacheSwitch.isBypassed(null));
+
+        CacheSwitch.apply("false");
+        Assert.assertFalse(CacheSwitch.isBypassed("a"));
+    }
+
+    @Test
+    public void globalAndPerCacheSwitchesCombine() {
+        CacheSwitch.setDisabled("a", true);
+        CacheSwitch.setGlobalDisabled(true);
+        Assert.assertTrue(CacheSwitch.isBypassed("b"));
+
+        CacheSwitch.setGlobalDisabled(false);
+        Assert.assertTrue(CacheSwitch.isBypassed("a"));
+        Assert.assertFalse(CacheSwitch.isBypassed("b"));
+
+        CacheSwitch.setDisabled("a", false);
+        Assert.assertFalse(CacheSwitch.isBypassed("a"));
+    }
+
+    @Test
+    public void shrinkingMaxSizeKeepsCacheAndEvicts() {
+        CaffeineCacheImpl cache = new CaffeineCacheImpl(CacheTestSupport.config("reconfigureTest").executor(Runnable::run).build());
+        for (int i = 0; i < 100; i++) {
+            cache.addValue("k" + i, "v");
+        }
+
+        cache.setMaxSize(10);
+        cache.getCache().cleanUp();
+
+        Assert.assertEquals(10, cache.getMaxSize());
+        Assert.assertEquals(10L, cache.getCapacity());
+        Assert.assertTrue(cache.getCache().estimatedSize() <= 10);
+        cache.setMaxSize(0);
+        Assert.assertEquals(10, cache.getMaxSize());
+    }
+
+    @Test
+    public void expireAfterWriteChangedInPlace() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("reconfigureTest");
+        cache.addValue("k", "v");
+
+        cache.setExpireAfterWrite(600);
+
+        Assert.assertEquals(600, cache.getExpireAfterWrite());
+        Assert.assertEquals(600L, (long) cache.getCache().policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.SECONDS));
+        Assert.assertEquals("v", cache.getValue("k"));
+    }
+
+    @Test
+    public void variableExpiryChangeAppliesToNewWrites() {
+        CaffeineCacheImpl cache = new CaffeineCacheImpl(CacheTestSupport.config("reconfigureTest").variableExpiry(true).build());
+        cache.addValue("old", "v");
+
+        cache.setExpireAfterWrite(600);
+        cache.addValue("new", "v");
+
+        long oldExpiry = cache.getCache().policy().expireVariably().get().getExpiresAfter("old", TimeUnit.SECONDS).get();
+        long newExpiry = cache.getCache().policy().expireVariably().get().getExpiresAfter("new", TimeUnit.SECONDS).get();
+        Assert.assertTrue(oldExpiry <= CacheTestSupport.EXPIRE_AFTER_WRITE);
+        Assert.assertTrue(newExpiry > CacheTestSupport.EXPIRE_AFTER_WRITE);
+    }
+}
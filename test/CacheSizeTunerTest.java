@@ -0,0 +1,70 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 缓存容量调节测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheSizeTunerTest {
+
+    private static CaffeineCacheImpl sampledCache(String name, int maxSize) {
+        return new CaffeineCacheImpl(CacheTestSupport.config(name).maxSize(maxSize).expireAfterWrite(600).sampleRate(1d).build());
+    }
+
+    private static void readHotKeys(CaffeineCacheImpl cache, int keys, int rounds) {
+        for (int i = 0; i < keys; i++) {
+            cache.addValue("k" + i, "v");
+        }
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < keys; i++) {
+                cache.getValue("k" + i);
+            }
+        }
+    }
+
+    private static void scan(CaffeineCacheImpl cache, int keys, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < keys; i++) {
+                if (null == cache.getValue("s" + i)) {
+                    cache.addValue("s" + i, "v");
+                }
+            }
+        }
+    }
+
+    private static long bytes(CaffeineCacheImpl cache) {
+        return cache.getCapacity() * Math.max(1L, cache.estimateEntryBytes());
+    }
+
+    @Test
+    public void fullyHitCacheKeepsCurrentSize() {
+        CaffeineCacheImpl cache = sampledCache("tunerHit", 1000);
+        readHotKeys(cache, 10, 100);
+        CacheSizeTuner tuner = new CacheSizeTuner(Long.MAX_VALUE / 2);
+        tuner.register(cache);
+
+        tuner.rebalance();
+
+        Assert.assertEquals(1000L, cache.getCapacity());
+    }
+
+    @Test
+    public void budgetMovesFromZeroGainCacheToGainingCache() {
+        CaffeineCacheImpl idle = sampledCache("tunerIdle", 4000);
+        CaffeineCacheImpl scanning = sampledCache("tunerScan", 1000);
+        readHotKeys(idle, 10, 100);
+        scan(scanning, 1500, 5);
+        CacheSizeTuner tuner = new CacheSizeTuner(bytes(idle) + bytes(scanning));
+        tuner.register(idle);
+        tuner.register(scanning);
+
+        tuner.rebalance();
+
+        Assert.assertTrue("scanning " + scanning.getCapacity(), scanning.getCapacity() > 1000L);
+        Assert.assertTrue("idle " + idle.getCapacity(), idle.getCapacity() < 4000L);
+    }
+}
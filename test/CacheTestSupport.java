@@ -0,0 +1,36 @@
+package org.example.core;
+
+/**
+ * 测试公共构造
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+final class CacheTestSupport {
+
+    static final int MAX_SIZE = 100;
+
+    static final int EXPIRE_AFTER_WRITE = 60;
+
+    private CacheTestSupport() {
+    }
+
+    /**
+     * 默认测试配置，调用方按需覆盖
+     */
+    static CaffeineCacheConfig.CaffeineCacheConfigBuilder config(String cacheName) {
+        return CaffeineCacheConfig.builder().cacheName(cacheName).maxSize(MAX_SIZE).expireAfterWrite(EXPIRE_AFTER_WRITE);
+    }
+
+    static CaffeineCacheImpl newCache(String cacheName) {
+        return new CaffeineCacheImpl(config(cacheName).build());
+    }
+
+    static CaffeineCacheImpl newCache(String cacheName, int maxSize) {
+        return new CaffeineCacheImpl(config(cacheName).maxSize(maxSize).build());
+    }
+
+    static CaffeineCacheImpl newCache(String cacheName, String path) {
+        return new CaffeineCacheImpl(config(cacheName).path(path).build());
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按字节限制容量测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CacheValueSizeEstimatorTest {
+
+    private final DefaultCacheValueSizeEstimator estimator = DefaultCacheValueSizeEstimator.INSTANCE;
+
+    private static String text(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append('a');
+        }
+        return builder.toString();
+    }
+
+    private static CaffeineCacheImpl weightedCache(long maxWeightBytes) {
+        return new CaffeineCacheImpl(CacheTestSupport.config("weightTest").maxWeightBytes(maxWeightBytes)
+                .executor(Runnable::run).build());
+    }
+
+    @Test
+    public void stringSizeGrowsWithLength() {
+        int small = this.estimator.estimate("k", text(10));
+        int large = this.estimator.estimate("k", text(1010));
+
+        Assert.assertEquals(2000, large - small);
+    }
+
+    @Test
+    public void objectFieldsAndCollectionsCounted() {
+        Node empty = new Node(null, null);
+        Node named = new Node(text(100), null);
+        List<String> ten = new ArrayList<>(Collections.nCopies(10, "abc"));
+        List<String> hundred = new ArrayList<>(Collections.nCopies(100, "abc"));
+
+        Assert.assertTrue(this.estimator.estimate("k", named) > this.estimator.estimate("k", empty));
+        Assert.assertTrue(this.estimator.estimate("k", hundred) > this.estimator.estimate("k", ten) * 5);
+    }
+
+    @Test
+    public void cyclicObjectStopsAtMaxDepth() {
+        Node node = new Node("a", null);
+        node.next = node;
+
+        Assert.assertTrue(this.estimator.estimate("k", node) > 0);
+    }
+
+    @Test
+    public void weightedCacheEvictsByBytes() {
+        String value = text(1000);
+        int entryBytes = this.estimator.estimate("k0", value);
+        CaffeineCacheImpl cache = weightedCache(entryBytes * 10L);
+        for (int i = 0; i < 100; i++) {
+            cache.addValue("k" + i, value);
+        }
+        cache.getCache().cleanUp();
+
+        long weightedSize = CaffeineCacheImpl.getWeightedSize(cache.getCache());
+        Assert.assertTrue("weightedSize " + weightedSize, weightedSize > 0 && weightedSize <= entryBytes * 10L);
+        Assert.assertTrue(cache.getCache().estimatedSize() <= 10);
+    }
+
+    @Test
+    public void weightedCacheIgnoresMaxSizeAndResizesByBytes() {
+        CaffeineCacheImpl cache = weightedCache(1_000_000L);
+        cache.setMaxSize(1);
+        Assert.assertEquals(1_000_000L, cache.getCapacity());
+
+        cache.setMaxWeightBytes(500_000L);
+        Assert.assertEquals(500_000L, cache.getCapacity());
+        Assert.assertEquals(-1L, CaffeineCacheImpl.getWeightedSize(CacheTestSupport.newCache("weightTest").getCache()));
+    }
+
+    static final class Node {
+        private final String name;
+        private Node next;
+
+        Node(String name, Node next) {
+            this.name = name;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.core;
+
+import org.example.spi.CacheKeyType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量部分命中结果合并测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheAopMergeTest {
+
+    @Test
+    public void mergeResultKeepsRequestOrder() {
+        Collection<Object> ids = Arrays.asList(1L, 2L, 3L, 4L);
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(1L, "a");
+        hits.put(3L, "c");
+        Map<Object, Object> loaded = new LinkedHashMap<>();
+        loaded.put(4L, "d");
+        loaded.put(2L, "b");
+
+        Object merged = CaffeineCacheAop.mergeResult(new ArrayList<>(), ids, hits, loaded, CacheKeyType.LONG);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), merged);
+    }
+
+    @Test
+    public void mergeResultMatchesLoadedKeysByKeyType() {
+        Collection<Object> ids = Arrays.asList(1L, 2L, 3L);
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(2L, "b");
+        Map<Object, Object> loaded = new LinkedHashMap<>();
+        loaded.put(3, "c");
+        loaded.put(1, "a");
+
+        Object merged = CaffeineCacheAop.mergeResult(new ArrayList<>(), ids, hits, loaded, CacheKeyType.LONG);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), merged);
+    }
+
+    @Test
+    public void mergeResultAppendsUnrequestedLoadedValues() {
+        Collection<Object> ids = Arrays.asList("1", "2");
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put("1", "a");
+        Map<Object, Object> loaded = new LinkedHashMap<>();
+        loaded.put("9", "z");
+
+        Object merged = CaffeineCacheAop.mergeResult(new LinkedHashMap<>(), ids, hits, loaded, CacheKeyType.STRING);
+
+        Map<Object, Object> expected = new LinkedHashMap<>();
+        expected.put("1", "a");
+        expected.put("9", "z");
+        Assert.assertEquals(expected, merged);
+    }
+
+    @Test
+    public void mergeUnsplitKeepsHitsForMapResult() {
+        Collection<Object> ids = Arrays.asList(1L, 2L);
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(1L, "a");
+        Map<Object, Object> missResult = new HashMap<>();
+        missResult.put(2L, "b");
+
+        Object merged = CaffeineCacheAop.mergeUnsplit(new LinkedHashMap<>(), ids, hits, missResult);
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put(1L, "a");
+        expected.put(2L, "b");
+        Assert.assertEquals(expected, merged);
+    }
+
+    @Test
+    public void mergeUnsplitKeepsHitsWhenLoadReturnsNull() {
+        Collection<Object> ids = Arrays.asList(1L, 2L);
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(1L, "a");
+
+        Object merged = CaffeineCacheAop.mergeUnsplit(new ArrayList<>(), ids, hits, null);
+
+        Assert.assertEquals(Arrays.asList("a"), merged);
+    }
+
+    @Test
+    public void mergeUnsplitAppendsCollectionResult() {
+        Collection<Object> ids = Arrays.asList(1L, 2L, 3L);
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(3L, "c");
+        hits.put(1L, "a");
+        List<Object> missResult = Arrays.asList("b");
+
+        Object merged = CaffeineCacheAop.mergeUnsplit(new ArrayList<>(), ids, hits, missResult);
+
+        Assert.assertEquals(Arrays.asList("a", "c", "b"), merged);
+    }
+
+    @Test
+    public void mergeUnsplitRejectsIncompatibleResult() {
+        Map<Object, Object> hits = new HashMap<>();
+        hits.put(1L, "a");
+
+        Assert.assertNull(CaffeineCacheAop.mergeUnsplit(new ArrayList<>(), Arrays.asList(1L, 2L), hits, "b"));
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步缓存接口测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheAsyncTest {
+
+    private static CaffeineCacheImpl asyncCache() {
+        return new CaffeineCacheImpl(CacheTestSupport.config("asyncTest").async(true).executor(Runnable::run).build());
+    }
+
+    @Test
+    public void concurrentCallersShareOneLoad() {
+        CaffeineCacheImpl cache = asyncCache();
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<Object> first = cache.getValueAsync("k", key -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        CompletableFuture<Object> second = cache.getValueAsync("k", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        Assert.assertFalse(first.isDone());
+        loading.complete("v");
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("v", first.join());
+        Assert.assertEquals("v", second.join());
+        Assert.assertEquals("v", cache.getValue("k"));
+        Assert.assertEquals("v", cache.getValueAsync("k").join());
+    }
+
+    @Test
+    public void failedLoadNotCached() {
+        CaffeineCacheImpl cache = asyncCache();
+        CompletableFuture<Object> failed = cache.getValueAsync("k", key -> {
+            throw new IllegalStateException("load failed");
+        });
+
+        Assert.assertTrue(failed.isCompletedExceptionally());
+        Assert.assertNull(cache.getValueAsync("k").join());
+        Assert.assertEquals("v", cache.getValueAsync("k", key -> CompletableFuture.completedFuture("v")).join());
+    }
+
+    @Test
+    public void nullResultNotCached() {
+        CaffeineCacheImpl cache = asyncCache();
+
+        Assert.assertNull(cache.getValueAsync("k", key -> CompletableFuture.completedFuture(null)).join());
+        Assert.assertNull(cache.getValue("k"));
+    }
+
+    @Test
+    public void removeDuringLoadDropsResult() {
+        CaffeineCacheImpl cache = asyncCache();
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> result = cache.getValueAsync("k", key -> loading);
+
+        cache.removeKey("k");
+        loading.complete("stale");
+
+        Assert.assertEquals("stale", result.join());
+        Assert.assertNull(cache.getValue("k"));
+    }
+
+    @Test
+    public void batchAsyncReadSkipsMissingAndFailedKeys() {
+        CaffeineCacheImpl cache = asyncCache();
+        cache.addValue("a", "1");
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        cache.getValueAsync("b", key -> loading);
+        loading.completeExceptionally(new IllegalStateException("load failed"));
+
+        Map<String, Object> values = cache.getValuesAsync(Arrays.asList("a", "b", "c")).join();
+
+        Assert.assertEquals(1, values.size());
+        Assert.assertEquals("1", values.get("a"));
+    }
+
+    @Test
+    public void synchronousCacheFallsBackToVersionedLoad() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("asyncTest");
+
+        Assert.assertEquals("v", cache.getValueAsync("k", key -> CompletableFuture.completedFuture("v")).join());
+        Assert.assertEquals("v", cache.getValue("k"));
+        Assert.assertNull(cache.getAsyncCache());
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量读写测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheBulkTest {
+
+    @Test
+    public void addValuesSkipsNullEntriesAndReturnsWrittenCount() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("bulkTest");
+        Map<Long, Object> values = new HashMap<>();
+        values.put(1L, "a");
+        values.put(2L, "b");
+        values.put(3L, null);
+        values.put(null, "c");
+
+        Assert.assertEquals(2, cache.addValues(values));
+        Assert.assertEquals("a", cache.getValue(1L));
+        Assert.assertEquals("b", cache.getValue(2L));
+        Assert.assertNull(cache.getValue(3L));
+    }
+
+    @Test
+    public void getValuesReturnsOnlyPresentKeys() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("bulkTest");
+        cache.addValue(1L, "a");
+        cache.addValue(3L, "c");
+
+        Map<Long, Object> result = cache.getValues(Arrays.asList(1L, 2L, 3L, null));
+
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals("a", result.get(1L));
+        Assert.assertEquals("c", result.get(3L));
+        Assert.assertTrue(cache.getValues(Collections.<Long>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void addValuesClearsAbsentMarkers() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("bulkTest");
+        cache.enableAbsentCache();
+        Assert.assertTrue(cache.addAbsent(1L, cache.getVersion()));
+        Assert.assertTrue(cache.isAbsent(1L));
+
+        cache.addValues(Collections.singletonMap(1L, "a"));
+
+        Assert.assertFalse(cache.isAbsent(1L));
+        Assert.assertEquals("a", cache.getValue(1L));
+    }
+
+    @Test
+    public void removeKeysInvalidatesAllGivenKeys() {
+        CaffeineCacheImpl cache = CacheTestSupport.newCache("bulkTest");
+        Map<Long, Object> values = new HashMap<>();
+        values.put(1L, "a");
+        values.put(2L, "b");
+        values.put(3L, "c");
+        cache.addValues(values);
+        long version = cache.getVersion();
+
+        cache.removeKeys(Arrays.asList(1L, 2L));
+
+        Assert.assertEquals(Collections.singletonMap(3L, "c"), cache.getValues(Arrays.asList(1L, 2L, 3L)));
+        Assert.assertEquals(0, cache.addValues(Collections.singletonMap(1L, "stale"), version));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.core;
+
+import lombok.Data;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 解码缓存测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheDecodeTest {
+
+    private static final String JSON = "{\"id\":1,\"name\":\"a\"}";
+
+    private static CaffeineCacheImpl newCache(boolean decodeCache) {
+        return new CaffeineCacheImpl(CacheTestSupport.config("decodeTest").decodeCache(decodeCache).build());
+    }
+
+    @Test
+    public void decodedObjectReusedAcrossHits() {
+        CaffeineCacheImpl cache = newCache(true);
+        cache.addValue(1L, JSON);
+
+        Dto first = cache.getValueAndFormat(1L, Dto.class);
+        Dto second = cache.getValueAndFormat(1L, Dto.class);
+
+        Assert.assertEquals("a", first.getName());
+        Assert.assertSame(first, second);
+        Assert.assertSame(first, cache.getValuesAndFormat(Arrays.asList(1L), Dto.class).get(1L));
+    }
+
+    @Test
+    public void rawValueReturnedWithDecodeCache() {
+        CaffeineCacheImpl cache = newCache(true);
+        cache.addValue(1L, JSON);
+        cache.getValueAndFormat(1L, Dto.class);
+
+        Assert.assertEquals(JSON, cache.getValue(1L));
+        Map<Long, Object> values = cache.getValues(Arrays.asList(1L));
+        Assert.assertEquals(JSON, values.get(1L));
+    }
+
+    @Test
+    public void overwriteDropsDecodedObject() {
+        CaffeineCacheImpl cache = newCache(true);
+        cache.addValue(1L, JSON);
+        Dto before = cache.getValueAndFormat(1L, Dto.class);
+        cache.addValue(1L, "{\"id\":1,\"name\":\"b\"}");
+
+        Dto after = cache.getValueAndFormat(1L, Dto.class);
+
+        Assert.assertNotSame(before, after);
+        Assert.assertEquals("b", after.getName());
+    }
+
+    @Test
+    public void withoutDecodeCacheEachHitParses() {
+        CaffeineCacheImpl cache = newCache(false);
+        cache.addValue(1L, JSON);
+
+        Dto first = cache.getValueAndFormat(1L, Dto.class);
+        Dto second = cache.getValueAndFormat(1L, Dto.class);
+
+        Assert.assertEquals(first, second);
+        Assert.assertNotSame(first, second);
+    }
+
+    @Data
+    public static class Dto {
+        private long id;
+        private String name;
+    }
+}
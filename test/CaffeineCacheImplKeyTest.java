@@ -0,0 +1,84 @@
+package org.example.core;
+
+import org.example.spi.CacheKeyType;
+import org.example.spi.CaffeineCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 缓存key转换在读写路径上的行为测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheImplKeyTest {
+
+    private static CaffeineCacheImpl newCache(CacheKeyType keyType) {
+        return new CaffeineCacheImpl(CacheTestSupport.config("keyTest").keyType(keyType).build());
+    }
+
+    @Test
+    public void batchGetKeepsIdsThatShareOneKey() {
+        CaffeineCacheImpl cache = newCache(CacheKeyType.STRING);
+        cache.addValue(1L, "a");
+
+        Map<Object, Object> result = cache.getValues(Arrays.<Object>asList(1L, 1, "1", 2L));
+
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals("a", result.get(1L));
+        Assert.assertEquals("a", result.get(1));
+        Assert.assertEquals("a", result.get("1"));
+    }
+
+    @Test
+    public void numericIdsShareOneLongKey() {
+        CaffeineCacheImpl cache = newCache(CacheKeyType.LONG);
+        cache.addValue(1, "a");
+
+        Assert.assertEquals("a", cache.getValue(1L));
+        Assert.assertEquals("a", cache.getValue("1"));
+        Assert.assertEquals("a", cache.getValueByLong(1L));
+    }
+
+    @Test
+    public void invalidIdsAreIgnoredWithoutThrowing() {
+        CaffeineCacheImpl cache = newCache(CacheKeyType.LONG);
+        cache.addValue(1L, "a");
+
+        cache.addValue(1.5D, "b");
+        cache.addValue("abc", "c");
+        cache.removeKey("abc");
+        cache.removeKeys(Arrays.<Object>asList("abc", 1.5D));
+        Assert.assertFalse(cache.addValue("abc", "d", cache.getVersion()));
+        Assert.assertEquals(0, cache.addValues(Collections.singletonMap("abc", "e")));
+
+        Assert.assertNull(cache.getValue(1.5D));
+        Assert.assertEquals("a", cache.getValue(1L));
+        Assert.assertEquals(1L, cache.getCache().estimatedSize());
+    }
+
+    @Test
+    public void longPathMatchesObjectPath() {
+        CaffeineCacheImpl cache = newCache(CacheKeyType.STRING);
+        cache.addValueByLong(7L, "x");
+
+        Assert.assertEquals("x", cache.getValue("7"));
+        cache.removeKeyByLong(7L);
+        Assert.assertNull(cache.getValue(7));
+    }
+
+    @Test
+    public void longPathReachableThroughDecorators() {
+        CaffeineCache cache = new BaseDecorator(newCache(CacheKeyType.LONG));
+        cache.addValueByLong(7L, "x");
+
+        Assert.assertEquals("x", cache.getValueByLong(7L));
+        Assert.assertEquals("x", cache.getValue("7"));
+        cache.removeKeyByLong(7L);
+        Assert.assertNull(cache.getValueByLong(7L));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * 带版本写入与删除并发测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheImplVersionTest {
+
+    private static CaffeineCacheImpl newCache() {
+        return CacheTestSupport.newCache("versionTest");
+    }
+
+    @Test
+    public void putStartedBeforeRemoveIsDropped() {
+        CaffeineCacheImpl cache = newCache();
+        long version = cache.getVersion();
+        cache.removeKey("k");
+
+        Assert.assertFalse(cache.addValue("k", "stale", version));
+        Assert.assertNull(cache.getValue("k"));
+        Assert.assertEquals(0, cache.addValues(Collections.singletonMap("k", "stale"), version));
+        Assert.assertNull(cache.getValue("k"));
+    }
+
+    @Test
+    public void putStartedAfterRemoveIsWritten() {
+        CaffeineCacheImpl cache = newCache();
+        cache.removeKey("k");
+        long version = cache.getVersion();
+
+        Assert.assertTrue(cache.addValue("k", "fresh", version));
+        Assert.assertEquals("fresh", cache.getValue("k"));
+    }
+
+    @Test
+    public void removeOfOtherKeyDoesNotDropPut() {
+        CaffeineCacheImpl cache = newCache();
+        long version = cache.getVersion();
+        cache.removeKey("other");
+
+        Assert.assertTrue(cache.addValue("k", "v", version));
+        Assert.assertEquals("v", cache.getValue("k"));
+    }
+
+    @Test
+    public void removeAllDropsEveryEarlierPut() {
+        CaffeineCacheImpl cache = newCache();
+        long version = cache.getVersion();
+        cache.removeAll();
+
+        Assert.assertFalse(cache.addValue("a", "stale", version));
+        Assert.assertFalse(cache.addValue("b", "stale", version));
+        Assert.assertTrue(cache.addValue("a", "fresh", cache.getVersion()));
+    }
+
+    @Test
+    public void staleAbsentMarkerIsDropped() {
+        CaffeineCacheImpl cache = newCache();
+        cache.enableAbsentCache();
+        long version = cache.getVersion();
+        cache.removeKey("k");
+
+        Assert.assertFalse(cache.addAbsent("k", version));
+        Assert.assertFalse(cache.isAbsent("k"));
+    }
+
+    @Test
+    public void concurrentLoadsStartedBeforeRemoveAreAllDropped() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            CaffeineCacheImpl cache = newCache();
+            int loaders = 8;
+            CyclicBarrier versionTaken = new CyclicBarrier(loaders + 1);
+            CountDownLatch removed = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(loaders);
+            List<Boolean> written = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < loaders; i++) {
+                Thread loader = new Thread(() -> {
+                    try {
+                        long version = cache.getVersion();
+                        versionTaken.await();
+                        removed.await();
+                        written.add(cache.addValue("k", "stale", version));
+                    } catch (Exception e) {
+                        written.add(Boolean.TRUE);
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+                loader.start();
+            }
+            versionTaken.await();
+            cache.removeKey("k");
+            removed.countDown();
+            finished.await();
+
+            Assert.assertFalse("round " + round, written.contains(Boolean.TRUE));
+            Assert.assertNull("round " + round, cache.getValue("k"));
+        }
+    }
+
+    @Test
+    public void racingRemoveAndPutNeverLeavesStaleValue() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            CaffeineCacheImpl cache = newCache();
+            long version = cache.getVersion();
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (Exception ignore) {
+                    return;
+                }
+                cache.addValue("k", "stale", version);
+            });
+            writer.start();
+            start.await();
+            cache.removeKey("k");
+            writer.join();
+
+            Assert.assertNull("round " + round, cache.getValue("k"));
+        }
+    }
+}
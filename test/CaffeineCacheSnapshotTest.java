@@ -0,0 +1,140 @@
+package org.example.core;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 缓存快照按剩余失效时间恢复测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheSnapshotTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("caffeine-cache-snapshot");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static CaffeineCacheImpl newCache() {
+        return new CaffeineCacheImpl(CacheTestSupport.config("snapshotTest").variableExpiry(true).build());
+    }
+
+    @Test
+    public void restoresWithRemainingTtl() throws Exception {
+        CaffeineCacheImpl source = newCache();
+        source.addValue("k", "v", 10, TimeUnit.SECONDS);
+        CaffeineCacheSnapshot snapshot = new CaffeineCacheSnapshot(this.directory, 100, 0);
+        Assert.assertEquals(1, snapshot.write(source));
+
+        CaffeineCacheImpl target = newCache();
+        Assert.assertEquals(1, snapshot.restore(target));
+        Assert.assertEquals("v", target.getValue("k"));
+        long remaining = target.getCache().policy().expireVariably().get()
+                .getExpiresAfter("k", TimeUnit.MILLISECONDS).get();
+        Assert.assertTrue("remaining " + remaining, remaining > 0L && remaining <= TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Test
+    public void skipsEntriesExpiredSinceSnapshot() throws Exception {
+        CaffeineCacheImpl source = newCache();
+        source.addValue("short", "v", 300, TimeUnit.MILLISECONDS);
+        source.addValue("long", "v", 60, TimeUnit.SECONDS);
+        CaffeineCacheSnapshot snapshot = new CaffeineCacheSnapshot(this.directory, 100, 0);
+        Assert.assertEquals(2, snapshot.write(source));
+
+        Thread.sleep(500L);
+        CaffeineCacheImpl target = newCache();
+        Assert.assertEquals(1, snapshot.restore(target));
+        Assert.assertNull(target.getValue("short"));
+        Assert.assertEquals("v", target.getValue("long"));
+    }
+
+    @Test
+    public void skipsClassesOutsideAllowList() throws Exception {
+        CaffeineCacheImpl source = newCache();
+        source.addValue("dto", new Dto("a"));
+        source.addValue("plain", "v");
+        CaffeineCacheSnapshot snapshot = new CaffeineCacheSnapshot(this.directory, 100, 0);
+        Assert.assertEquals(2, snapshot.write(source));
+
+        CaffeineCacheImpl rejected = newCache();
+        Assert.assertEquals(1, snapshot.restore(rejected));
+        Assert.assertNull(rejected.getValue("dto"));
+        Assert.assertEquals("v", rejected.getValue("plain"));
+
+        CaffeineCacheSnapshot allowed = new CaffeineCacheSnapshot(this.directory, 100, 0,
+                Collections.singletonList("org.example.core."));
+        CaffeineCacheImpl restored = newCache();
+        Assert.assertEquals(2, allowed.restore(restored));
+        Assert.assertEquals("a", ((Dto) restored.getValue("dto")).name);
+    }
+
+    @Test
+    public void restoresCompositeKeysByDefault() throws Exception {
+        CaffeineCacheImpl source = newCache();
+        source.addValue(CompositeKey.of(1L, "zh"), "v");
+        CaffeineCacheSnapshot snapshot = new CaffeineCacheSnapshot(this.directory, 100, 0);
+        Assert.assertEquals(1, snapshot.write(source));
+
+        CaffeineCacheImpl target = newCache();
+        Assert.assertEquals(1, snapshot.restore(target));
+        Assert.assertEquals("v", target.getValue(CompositeKey.of(1L, "zh")));
+    }
+
+    @Test
+    public void concurrentWritesLeaveReadableSnapshot() throws Exception {
+        CaffeineCacheImpl source = newCache();
+        for (int i = 0; i < 100; i++) {
+            source.addValue("k" + i, "v" + i);
+        }
+        CaffeineCacheSnapshot snapshot = new CaffeineCacheSnapshot(this.directory, 100, 0);
+        snapshot.register(source);
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 20; j++) {
+                    snapshot.writeAll();
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        Assert.assertEquals(100, snapshot.restore(newCache()));
+        try (Stream<Path> files = Files.list(this.directory)) {
+            Assert.assertEquals(1L, files.count());
+        }
+    }
+
+    static final class Dto implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String name;
+
+        Dto(String name) {
+            this.name = name;
+        }
+    }
+}
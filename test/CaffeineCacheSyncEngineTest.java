@@ -0,0 +1,138 @@
+package org.example.core;
+
+import org.example.spi.CaffeineCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 缓存跨节点同步测试，两个同步引擎通过进程内通道模拟两个节点
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class CaffeineCacheSyncEngineTest {
+
+    private static final String CACHE_NAME = "syncTest";
+    private static final String PATH = "/cache/syncTest";
+
+    private CaffeineCacheSyncEngine sender;
+    private CaffeineCacheSyncEngine receiver;
+    private CaffeineCache senderCache;
+    private CaffeineCacheImpl receiverCache;
+
+    @Before
+    public void setUp() {
+        LoopbackCacheSyncTransport transport = new LoopbackCacheSyncTransport();
+        this.sender = new CaffeineCacheSyncEngine(transport, "sender", 1L);
+        this.receiver = new CaffeineCacheSyncEngine(transport, "receiver", 1L);
+        this.senderCache = this.sender.register(CacheTestSupport.newCache(CACHE_NAME, PATH));
+        this.receiverCache = CacheTestSupport.newCache(CACHE_NAME, PATH);
+        this.receiver.register(this.receiverCache);
+    }
+
+    @After
+    public void tearDown() {
+        this.sender.close();
+        this.receiver.close();
+    }
+
+    @Test
+    public void plainRemovesArePublished() {
+        this.receiverCache.addValues(Collections.singletonMap("a", "1"));
+        this.receiverCache.addValue("b", "2");
+        this.receiverCache.addValue("c", "3");
+
+        this.senderCache.removeKey("a");
+        this.senderCache.removeKeys(Arrays.asList("b"));
+        this.receiver.flush();
+
+        Assert.assertNull(this.receiverCache.getValue("a"));
+        Assert.assertNull(this.receiverCache.getValue("b"));
+        Assert.assertEquals("3", this.receiverCache.getValue("c"));
+
+        this.senderCache.removeAll();
+        this.receiver.flush();
+        Assert.assertNull(this.receiverCache.getValue("c"));
+    }
+
+    @Test
+    public void lastChangeWinsWithinWindow() {
+        this.sender.publishRefresh(this.senderCache, Collections.singletonMap("k", "v1"));
+        this.sender.publishRemove(this.senderCache, Collections.singletonList("k"));
+        this.receiver.flush();
+        Assert.assertNull(this.receiverCache.getValue("k"));
+
+        this.sender.publishRemove(this.senderCache, Collections.singletonList("k"));
+        this.sender.publishRefresh(this.senderCache, Collections.singletonMap("k", "v2"));
+        this.receiver.flush();
+        Assert.assertEquals("v2", this.receiverCache.getValue("k"));
+    }
+
+    @Test
+    public void delayedRefreshDoesNotOverwriteLocalRemove() {
+        LoopbackCacheSyncTransport transport = new LoopbackCacheSyncTransport();
+        CaffeineCacheSyncEngine slowSender = new CaffeineCacheSyncEngine(transport, "slowSender", 60000L);
+        CaffeineCacheSyncEngine slowReceiver = new CaffeineCacheSyncEngine(transport, "slowReceiver", 60000L);
+        try {
+            CaffeineCache source = slowSender.register(CacheTestSupport.newCache(CACHE_NAME, PATH));
+            CaffeineCacheImpl target = CacheTestSupport.newCache(CACHE_NAME, PATH);
+            slowReceiver.register(target);
+
+            slowSender.publishRefresh(source, Collections.singletonMap("k", "remote"));
+            target.removeKey("k");
+            slowReceiver.flush();
+            Assert.assertNull(target.getValue("k"));
+
+            slowSender.publishRefresh(source, Collections.singletonMap("k", "remote2"));
+            slowReceiver.flush();
+            Assert.assertEquals("remote2", target.getValue("k"));
+        } finally {
+            slowSender.close();
+            slowReceiver.close();
+        }
+    }
+
+    @Test
+    public void concurrentFlushesApplyChangesInOrder() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            boolean endWithRemove = round % 2 == 0;
+            runRound(endWithRemove ? 999 : 1000);
+            if (endWithRemove) {
+                Assert.assertNull("round " + round, this.receiverCache.getValue("k"));
+            } else {
+                Assert.assertEquals("round " + round, "v1000", this.receiverCache.getValue("k"));
+            }
+        }
+    }
+
+    private void runRound(int last) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(2);
+        for (int t = 0; t < 2; t++) {
+            Thread flusher = new Thread(() -> {
+                while (running.get()) {
+                    this.receiver.flush();
+                }
+                done.countDown();
+            });
+            flusher.start();
+        }
+        for (int i = 0; i <= last; i++) {
+            if (i % 2 == 0) {
+                this.sender.publishRefresh(this.senderCache, Collections.singletonMap("k", "v" + i));
+            } else {
+                this.sender.publishRemove(this.senderCache, Collections.singletonList("k"));
+            }
+        }
+        running.set(false);
+        done.await();
+        this.receiver.flush();
+    }
+}
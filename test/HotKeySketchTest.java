@@ -0,0 +1,104 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 热点key统计测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class HotKeySketchTest {
+
+    private static Set<Object> keys(List<Map.Entry<Object, Long>> hottest) {
+        Set<Object> keys = new HashSet<>();
+        for (Map.Entry<Object, Long> entry : hottest) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    @Test
+    public void hotKeysFoundAmongColdKeys() {
+        HotKeySketch sketch = new HotKeySketch(5);
+        for (long cold = 100; cold < 5100; cold++) {
+            sketch.record(cold);
+            for (long hot = 0; hot < 5; hot++) {
+                if (cold % (hot + 2) == 0) {
+                    sketch.record(hot);
+                }
+            }
+        }
+
+        List<Map.Entry<Object, Long>> hottest = sketch.snapshotAndReset();
+
+        Set<Object> expected = new HashSet<>();
+        for (long hot = 0; hot < 5; hot++) {
+            expected.add(hot);
+        }
+        Assert.assertEquals(expected, keys(hottest));
+        Assert.assertEquals(0L, hottest.get(0).getKey());
+        for (int i = 1; i < hottest.size(); i++) {
+            Assert.assertTrue(hottest.get(i - 1).getValue() >= hottest.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void snapshotStartsNewPeriod() {
+        HotKeySketch sketch = new HotKeySketch(2);
+        sketch.record("a");
+        sketch.snapshotAndReset();
+        sketch.record("b");
+
+        List<Map.Entry<Object, Long>> hottest = sketch.snapshotAndReset();
+
+        Assert.assertEquals(1, hottest.size());
+        Assert.assertEquals("b", hottest.get(0).getKey());
+        Assert.assertEquals(1L, (long) hottest.get(0).getValue());
+    }
+
+    @Test
+    public void concurrentRecordsNeverUndercount() throws InterruptedException {
+        HotKeySketch sketch = new HotKeySketch(3);
+        int threads = 8;
+        int rounds = 10000;
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread writer = new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    sketch.record("hot");
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        List<Map.Entry<Object, Long>> hottest = sketch.snapshotAndReset();
+
+        Assert.assertEquals("hot", hottest.get(0).getKey());
+        Assert.assertEquals((long) threads * rounds, (long) hottest.get(0).getValue());
+    }
+
+    @Test
+    public void decoratorCountsIdsBySameCacheKey() {
+        MonitorDecorator cache = new MonitorDecorator(CacheTestSupport.newCache("hotKeyTest"), true, 3);
+        cache.getValue(1);
+        cache.getValue(1L);
+        cache.getValue("1");
+
+        cache.flush();
+
+        Assert.assertTrue(cache.getCacheStat(), cache.getCacheStat().contains("hotKeys:([1=3])"));
+        cache.close();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.core;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按条目失效及随机抖动测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class JitteredExpiryTest {
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static long expiresAfter(CaffeineCacheImpl cache, Object key) {
+        Policy.VarExpiration<Object, Object> expiration = cache.getCache().policy().expireVariably().get();
+        return expiration.getExpiresAfter(key, TimeUnit.NANOSECONDS).get();
+    }
+
+    @Test
+    public void jitterOnlyShortensWithinRatio() {
+        JitteredExpiry expiry = new JitteredExpiry(MINUTE_NANOS, 0.2d);
+        Set<Long> durations = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long duration = expiry.expireAfterCreate("k", "v", 0L);
+            Assert.assertTrue(duration <= MINUTE_NANOS && duration >= MINUTE_NANOS * 0.8d);
+            durations.add(duration);
+        }
+
+        Assert.assertTrue(durations.size() > 1);
+    }
+
+    @Test
+    public void zeroJitterKeepsDurationAndReadKeepsRemaining() {
+        JitteredExpiry expiry = new JitteredExpiry(MINUTE_NANOS, 0d);
+
+        Assert.assertEquals(MINUTE_NANOS, expiry.expireAfterCreate("k", "v", 0L));
+        Assert.assertEquals(MINUTE_NANOS, expiry.expireAfterUpdate("k", "v", 0L, 1L));
+        Assert.assertEquals(123L, expiry.expireAfterRead("k", "v", 0L, 123L));
+
+        expiry.setExpireNanos(MINUTE_NANOS * 2);
+        Assert.assertEquals(MINUTE_NANOS * 2, expiry.expireAfterCreate("k", "v", 0L));
+    }
+
+    @Test
+    public void jitterRatioClamped() {
+        JitteredExpiry expiry = new JitteredExpiry(MINUTE_NANOS, 5d);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(expiry.jitter(MINUTE_NANOS) > 0L);
+        }
+    }
+
+    @Test
+    public void perEntryTtlOverridesDefault() {
+        CaffeineCacheImpl cache = new CaffeineCacheImpl(CacheTestSupport.config("expiryTest").variableExpiry(true).build());
+        cache.addValue("default", "v");
+        cache.addValue("short", "v", 2, TimeUnit.SECONDS);
+
+        Assert.assertTrue(expiresAfter(cache, "short") <= TimeUnit.SECONDS.toNanos(2));
+        Assert.assertTrue(expiresAfter(cache, "default") > TimeUnit.SECONDS.toNanos(2));
+        Assert.assertTrue(expiresAfter(cache, "default") <= TimeUnit.SECONDS.toNanos(CacheTestSupport.EXPIRE_AFTER_WRITE));
+    }
+
+    @Test
+    public void jitteredCacheSpreadsExpiry() {
+        CaffeineCacheImpl cache = new CaffeineCacheImpl(CacheTestSupport.config("expiryTest").expireJitter(0.5d).build());
+        Set<Long> buckets = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            cache.addValue("k" + i, "v");
+            buckets.add(TimeUnit.NANOSECONDS.toSeconds(expiresAfter(cache, "k" + i)));
+        }
+
+        Assert.assertTrue(buckets.size() > 1);
+        Assert.assertTrue(cache.getAge("k0", TimeUnit.SECONDS) >= 0L);
+    }
+}
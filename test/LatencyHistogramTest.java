@@ -0,0 +1,59 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 延迟直方图测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class LatencyHistogramTest {
+
+    private static void assertWithinBucket(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " actual " + actual, actual >= expected && actual <= expected * 1.125D);
+    }
+
+    @Test
+    public void percentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+        Assert.assertEquals(1000L, snapshot.getCount());
+        assertWithinBucket(500_000L, snapshot.getP50());
+        assertWithinBucket(990_000L, snapshot.getP99());
+        assertWithinBucket(999_000L, snapshot.getP999());
+        Assert.assertEquals(1_000_000L, snapshot.getMax());
+    }
+
+    @Test
+    public void snapshotResetsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000L);
+        histogram.snapshotAndReset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+        Assert.assertEquals(0L, snapshot.getCount());
+        Assert.assertEquals(0L, snapshot.getP99());
+        Assert.assertEquals(0L, snapshot.getMax());
+    }
+
+    @Test
+    public void negativeAndHugeValuesHandled() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1L);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+        Assert.assertEquals(1L, snapshot.getCount());
+        Assert.assertEquals(Long.MAX_VALUE, snapshot.getMax());
+        Assert.assertTrue(snapshot.getP50() > 0L);
+    }
+}
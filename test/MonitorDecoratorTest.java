@@ -0,0 +1,70 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 统计装饰器累加计数测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class MonitorDecoratorTest {
+
+    @Test
+    public void concurrentReadsAccumulateExactCounts() throws InterruptedException {
+        MonitorDecorator cache = new MonitorDecorator(CacheTestSupport.newCache("monitorTest"), true);
+        cache.addValue("hit", "v");
+        int threads = 8;
+        int rounds = 10000;
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread reader = new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    cache.getValue("hit");
+                    cache.getValue("miss");
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertEquals((long) threads * rounds, cache.pendingHits());
+        Assert.assertEquals((long) threads * rounds, cache.pendingMisses());
+        cache.close();
+    }
+
+    @Test
+    public void batchReadsAndRemovesAccumulate() {
+        MonitorDecorator cache = new MonitorDecorator(CacheTestSupport.newCache("monitorTest"), true);
+        cache.addValue(1L, "a");
+
+        cache.getValues(Arrays.asList(1L, 2L, 3L));
+        cache.removeKeys(Arrays.asList(1L, 2L));
+        cache.removeKey(3L);
+
+        Assert.assertEquals(1L, cache.pendingHits());
+        Assert.assertEquals(2L, cache.pendingMisses());
+        Assert.assertEquals(3L, cache.pendingRemoves());
+        cache.close();
+    }
+
+    @Test
+    public void flushResetsAccumulatedCounts() {
+        MonitorDecorator cache = new MonitorDecorator(CacheTestSupport.newCache("monitorTest"), true);
+        cache.getValue("miss");
+
+        cache.flush();
+
+        Assert.assertEquals(0L, cache.pendingHits());
+        Assert.assertEquals(0L, cache.pendingMisses());
+        cache.close();
+    }
+}
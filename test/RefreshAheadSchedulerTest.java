@@ -0,0 +1,94 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 提前刷新调度测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class RefreshAheadSchedulerTest {
+
+    private final RefreshAheadScheduler scheduler = new RefreshAheadScheduler();
+
+    private final Queue<Runnable> submitted = new ArrayDeque<>();
+
+    private CaffeineCacheImpl newCache() {
+        return new CaffeineCacheImpl(CacheTestSupport.config("refreshTest").loaderExecutor(this.submitted::add).build());
+    }
+
+    @Test
+    public void freshEntryNotRefreshed() {
+        CaffeineCacheImpl cache = newCache();
+        cache.addValue("k", "v");
+
+        this.scheduler.refreshIfStale(cache, "k", 60, () -> {
+        });
+
+        Assert.assertTrue(this.submitted.isEmpty());
+    }
+
+    @Test
+    public void missingEntryNotRefreshed() {
+        this.scheduler.refreshIfStale(newCache(), "k", 0, () -> {
+        });
+
+        Assert.assertTrue(this.submitted.isEmpty());
+    }
+
+    @Test
+    public void staleKeyRefreshedOnceUntilTaskFinishes() {
+        CaffeineCacheImpl cache = newCache();
+        cache.addValue("k", "v");
+        AtomicInteger refreshes = new AtomicInteger();
+
+        this.scheduler.refreshIfStale(cache, "k", 0, refreshes::incrementAndGet);
+        this.scheduler.refreshIfStale(cache, "k", 0, refreshes::incrementAndGet);
+        Assert.assertEquals(1, this.submitted.size());
+
+        this.submitted.poll().run();
+        Assert.assertEquals(1, refreshes.get());
+
+        this.scheduler.refreshIfStale(cache, "k", 0, refreshes::incrementAndGet);
+        Assert.assertEquals(1, this.submitted.size());
+    }
+
+    @Test
+    public void failedRefreshReleasesKey() {
+        CaffeineCacheImpl cache = newCache();
+        cache.addValue("k", "v");
+
+        this.scheduler.refreshIfStale(cache, "k", 0, () -> {
+            throw new IllegalStateException("load failed");
+        });
+        this.submitted.poll().run();
+        this.scheduler.refreshIfStale(cache, "k", 0, () -> {
+        });
+
+        Assert.assertEquals(1, this.submitted.size());
+    }
+
+    @Test
+    public void rejectedRefreshReleasesKey() {
+        CaffeineCacheImpl rejecting = new CaffeineCacheImpl(CacheTestSupport.config("refreshTest").loaderExecutor(task -> {
+            throw new RejectedExecutionException("full");
+        }).build());
+        rejecting.addValue("k", "v");
+        this.scheduler.refreshIfStale(rejecting, "k", 0, () -> {
+        });
+
+        CaffeineCacheImpl cache = newCache();
+        cache.addValue("k", "v");
+        this.scheduler.refreshIfStale(cache, "k", 0, () -> {
+        });
+
+        Assert.assertEquals(1, this.submitted.size());
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 合并加载测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class SingleFlightLoaderTest {
+
+    private final SingleFlightLoader loader = new SingleFlightLoader();
+
+    private Thread startLeader(CountDownLatch started, CountDownLatch release, long timeoutMillis) {
+        Thread leader = new Thread(() -> {
+            try {
+                this.loader.load("flightTest", "k", timeoutMillis, () -> {
+                    started.countDown();
+                    release.await();
+                    return "leader";
+                });
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        });
+        leader.start();
+        return leader;
+    }
+
+    @Test
+    public void waitersShareLeaderResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = startLeader(started, release, 5000L);
+        started.await();
+        AtomicInteger loads = new AtomicInteger();
+        List<Thread> waiters = new ArrayList<>();
+        List<Object> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread waiter = new Thread(() -> {
+                try {
+                    Object result = this.loader.load("flightTest", "k", 5000L, () -> {
+                        loads.incrementAndGet();
+                        return "waiter";
+                    });
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+        }
+        Thread.sleep(100L);
+        release.countDown();
+        leader.join();
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+
+        Assert.assertEquals(0, loads.get());
+        Assert.assertEquals(8, results.size());
+        for (Object result : results) {
+            Assert.assertEquals("leader", result);
+        }
+    }
+
+    @Test
+    public void timedOutWaitersDoNotStampede() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = startLeader(started, release, 200L);
+        started.await();
+        AtomicInteger loads = new AtomicInteger();
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread waiter = new Thread(() -> {
+                try {
+                    this.loader.load("flightTest", "k", 200L, () -> {
+                        loads.incrementAndGet();
+                        TimeUnit.MILLISECONDS.sleep(50L);
+                        return "takeover";
+                    });
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+        }
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+        release.countDown();
+        leader.join();
+
+        Assert.assertTrue("loads " + loads.get(), loads.get() >= 1 && loads.get() <= 2);
+    }
+
+    @Test
+    public void interruptedWaiterRestoresFlagAfterLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = startLeader(started, release, 5000L);
+        started.await();
+        AtomicBoolean loadedWhileInterrupted = new AtomicBoolean();
+        AtomicBoolean interruptedAfter = new AtomicBoolean();
+        AtomicReference<Object> result = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                result.set(this.loader.load("flightTest", "k", 5000L, () -> {
+                    loadedWhileInterrupted.set(Thread.currentThread().isInterrupted());
+                    return "waiter";
+                }));
+                interruptedAfter.set(Thread.currentThread().isInterrupted());
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        });
+        waiter.start();
+        Thread.sleep(100L);
+        waiter.interrupt();
+        waiter.join();
+        release.countDown();
+        leader.join();
+
+        Assert.assertNotNull(result.get());
+        Assert.assertFalse(loadedWhileInterrupted.get());
+        Assert.assertTrue(interruptedAfter.get());
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 二级缓存测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class TieredCaffeineCacheTest {
+
+    private final CountingStore store = new CountingStore();
+
+    private TieredCaffeineCache tiered() {
+        return new TieredCaffeineCache(CacheTestSupport.newCache("tieredTest"), this.store, 600);
+    }
+
+    @Test
+    public void l1MissReadsL2AndBackfillsL1() {
+        tiered().addValue("k", "v");
+        CaffeineCacheImpl l1 = CacheTestSupport.newCache("tieredTest");
+        TieredCaffeineCache cache = new TieredCaffeineCache(l1, this.store, 600);
+
+        Assert.assertEquals("v", cache.getValue("k"));
+        Assert.assertEquals("v", l1.getValue("k"));
+        Assert.assertEquals("v", cache.getValue("k"));
+        Assert.assertEquals(1, this.store.gets.get());
+    }
+
+    @Test
+    public void batchMissesFetchedInOneCall() {
+        TieredCaffeineCache writer = tiered();
+        Map<Long, Object> values = new HashMap<>();
+        for (long i = 0; i < 10; i++) {
+            values.put(i, "v" + i);
+        }
+        writer.addValues(values);
+        TieredCaffeineCache cache = tiered();
+        cache.addValue(0L, "v0");
+
+        Map<Long, Object> result = cache.getValues(Arrays.asList(0L, 1L, 2L, 3L, 99L));
+
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals("v3", result.get(3L));
+        Assert.assertEquals(1, this.store.multiGets.get());
+        Assert.assertEquals(4, this.store.lastMultiGetSize);
+    }
+
+    @Test
+    public void l2KeysFollowL1KeyType() {
+        tiered().addValue(1L, "v");
+
+        Assert.assertEquals("v", tiered().getValue("1"));
+        Assert.assertEquals("v", tiered().getValues(Arrays.<Object>asList(1, "1")).get(1));
+    }
+
+    @Test
+    public void removesAndClearReachL2() {
+        TieredCaffeineCache cache = tiered();
+        cache.addValue("a", "1");
+        cache.addValue("b", "2");
+        cache.addValue("c", "3");
+
+        cache.removeKey("a");
+        cache.removeKeys(Arrays.asList("b"));
+        Assert.assertNull(tiered().getValue("a"));
+        Assert.assertNull(tiered().getValue("b"));
+        Assert.assertEquals("3", tiered().getValue("c"));
+
+        cache.removeAll();
+        Assert.assertNull(tiered().getValue("c"));
+    }
+
+    @Test
+    public void ttlBatchWriteReachesL2() {
+        TieredCaffeineCache cache = tiered();
+
+        Assert.assertEquals(1, cache.addValues(Collections.singletonMap("k", "v"), 30, TimeUnit.SECONDS));
+
+        Assert.assertEquals("v", tiered().getValue("k"));
+        Assert.assertEquals(30, this.store.lastExpireAfterWrite);
+    }
+
+    @Test
+    public void failingL2TreatedAsMiss() {
+        this.store.failing = true;
+        TieredCaffeineCache cache = tiered();
+
+        cache.addValue("k", "v");
+        Assert.assertEquals("v", cache.getValue("k"));
+        Assert.assertNull(cache.getValue("other"));
+        Assert.assertTrue(cache.getValues(Arrays.asList("other")).isEmpty());
+    }
+
+    @Test
+    public void asyncLoaderSkippedOnL2HitAndL2ReadOffCallerThread() {
+        List<Thread> readers = new CopyOnWriteArrayList<>();
+        this.store.readers = readers;
+        tiered().addValue("k", "l2");
+        CaffeineCacheImpl l1 = new CaffeineCacheImpl(CacheTestSupport.config("tieredTest").async(true).build());
+        TieredCaffeineCache cache = new TieredCaffeineCache(l1, this.store, 600);
+        AtomicInteger loads = new AtomicInteger();
+
+        Object value = cache.getValueAsync("k", key -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("loaded");
+        }).join();
+
+        Assert.assertEquals("l2", value);
+        Assert.assertEquals(0, loads.get());
+        Assert.assertFalse(readers.isEmpty());
+        Assert.assertFalse(readers.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void asyncLoaderResultWrittenToBothTiers() {
+        TieredCaffeineCache cache = tiered();
+
+        Object value = cache.getValueAsync("k", key -> CompletableFuture.completedFuture("loaded")).join();
+
+        Assert.assertEquals("loaded", value);
+        Assert.assertEquals("loaded", cache.getValue("k"));
+        Assert.assertEquals("loaded", tiered().getValue("k"));
+    }
+
+    /**
+     * 记录调用次数的二级存储
+     */
+    static final class CountingStore extends InMemoryCacheL2Store {
+        private final AtomicInteger gets = new AtomicInteger();
+        private final AtomicInteger multiGets = new AtomicInteger();
+        private volatile int lastMultiGetSize;
+        private volatile int lastExpireAfterWrite;
+        private volatile boolean failing;
+        private volatile List<Thread> readers;
+
+        @Override
+        public Object get(String cacheName, Object key) {
+            check();
+            this.gets.incrementAndGet();
+            if (null != this.readers) {
+                this.readers.add(Thread.currentThread());
+            }
+            return super.get(cacheName, key);
+        }
+
+        @Override
+        public <K> Map<K, Object> multiGet(String cacheName, Collection<K> keys) {
+            check();
+            this.multiGets.incrementAndGet();
+            this.lastMultiGetSize = keys.size();
+            return super.multiGet(cacheName, keys);
+        }
+
+        @Override
+        public void put(String cacheName, Object key, Object value, int expireAfterWrite) {
+            check();
+            this.lastExpireAfterWrite = expireAfterWrite;
+            super.put(cacheName, key, value, expireAfterWrite);
+        }
+
+        @Override
+        public void putAll(String cacheName, Map<?, ?> values, int expireAfterWrite) {
+            check();
+            this.lastExpireAfterWrite = expireAfterWrite;
+            super.putAll(cacheName, values, expireAfterWrite);
+        }
+
+        private void check() {
+            if (this.failing) {
+                throw new IllegalStateException("l2 unavailable");
+            }
+        }
+    }
+}
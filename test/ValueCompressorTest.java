@@ -0,0 +1,101 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存值压缩测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class ValueCompressorTest {
+
+    private static String repeated(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + i % 4));
+        }
+        return builder.toString();
+    }
+
+    private static CaffeineCacheImpl compressedCache() {
+        return new CaffeineCacheImpl(CacheTestSupport.config("compressTest").valueCodec(DeflateCacheValueCodec.INSTANCE)
+                .compressThreshold(64).build());
+    }
+
+    @Test
+    public void codecRoundTripsAndRejectsIncompressible() {
+        byte[] raw = repeated(4096).getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = DeflateCacheValueCodec.INSTANCE.compress(raw);
+
+        Assert.assertTrue(compressed.length < raw.length);
+        Assert.assertArrayEquals(raw, DeflateCacheValueCodec.INSTANCE.decompress(compressed, raw.length));
+
+        byte[] random = new byte[256];
+        new Random(1L).nextBytes(random);
+        Assert.assertNull(DeflateCacheValueCodec.INSTANCE.compress(random));
+    }
+
+    @Test
+    public void pooledCodecSafeAcrossThreads() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int size = 1024 + i * 128;
+            Thread worker = new Thread(() -> {
+                byte[] raw = repeated(size).getBytes(StandardCharsets.UTF_8);
+                for (int round = 0; round < 2000; round++) {
+                    byte[] compressed = DeflateCacheValueCodec.INSTANCE.compress(raw);
+                    if (!Arrays.equals(raw, DeflateCacheValueCodec.INSTANCE.decompress(compressed, raw.length))) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void largeValuesStoredCompressedAndReadBack() {
+        CaffeineCacheImpl cache = compressedCache();
+        String large = repeated(4096);
+        byte[] bytes = repeated(4096).getBytes(StandardCharsets.UTF_8);
+        cache.addValue("text", large);
+        cache.addValue("bytes", bytes);
+        cache.addValue("small", "v");
+
+        Assert.assertTrue(cache.getCache().getIfPresent("text") instanceof ValueCompressor.Compressed);
+        Assert.assertEquals("v", cache.getCache().getIfPresent("small"));
+        Assert.assertEquals(large, cache.getValue("text"));
+        Assert.assertArrayEquals(bytes, (byte[]) cache.getValue("bytes"));
+        Assert.assertEquals(large, cache.getValues(Arrays.asList("text")).get("text"));
+        Assert.assertEquals(large, CaffeineCacheImpl.toValue(cache.getCache().getIfPresent("text")));
+        Assert.assertTrue(cache.getCacheStat(), cache.getCacheStat().contains("compressed:(2)"));
+    }
+
+    @Test
+    public void weightUsesCompressedBytes() {
+        String large = repeated(4096);
+        CaffeineCacheImpl plain = new CaffeineCacheImpl(CacheTestSupport.config("compressTest").maxWeightBytes(1_000_000L).build());
+        CaffeineCacheImpl compressed = new CaffeineCacheImpl(CacheTestSupport.config("compressTest").maxWeightBytes(1_000_000L)
+                .valueCodec(DeflateCacheValueCodec.INSTANCE).compressThreshold(64).build());
+        plain.addValue("k", large);
+        compressed.addValue("k", large);
+
+        Assert.assertTrue(compressed.estimateEntryBytes() * 4 < plain.estimateEntryBytes());
+    }
+}
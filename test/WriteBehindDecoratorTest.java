@@ -0,0 +1,120 @@
+package org.example.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步写入顺序测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class WriteBehindDecoratorTest {
+
+    private static WriteBehindDecorator newDecorator() {
+        return new WriteBehindDecorator(CacheTestSupport.newCache("writeBehindTest", 1000));
+    }
+
+    @Test
+    public void queuedWritesAppliedInOrder() {
+        WriteBehindDecorator cache = newDecorator();
+        for (int i = 0; i < 1000; i++) {
+            cache.addValue("k", i);
+        }
+        cache.close();
+
+        Assert.assertEquals(999, cache.getValue("k"));
+    }
+
+    @Test
+    public void ttlWriteNotOverwrittenByOlderQueuedWrite() {
+        WriteBehindDecorator cache = newDecorator();
+        cache.addValue("k", "queued");
+        cache.addValue("k", "ttl", 60, TimeUnit.SECONDS);
+        cache.close();
+
+        Assert.assertEquals("ttl", cache.getValue("k"));
+    }
+
+    @Test
+    public void versionedWriteAppliedOffCallerThread() {
+        CaffeineCacheImpl target = CacheTestSupport.newCache("writeBehindTest", 1000);
+        List<Thread> writers = new CopyOnWriteArrayList<>();
+        WriteBehindDecorator cache = new WriteBehindDecorator(new BaseDecorator(target) {
+            @Override
+            public <K, V> int addValues(Map<K, V> values, long version) {
+                writers.add(Thread.currentThread());
+                return super.addValues(values, version);
+            }
+        });
+        long version = cache.getVersion();
+        Assert.assertTrue(cache.addValue("a", "loaded", version));
+        cache.close();
+
+        Assert.assertEquals("loaded", cache.getValue("a"));
+        Assert.assertFalse(writers.isEmpty());
+        Assert.assertFalse(writers.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void queuedVersionedWriteDroppedAfterRemove() {
+        WriteBehindDecorator cache = newDecorator();
+        long version = cache.getVersion();
+        cache.removeKey("b");
+        Assert.assertTrue(cache.addValue("b", "stale", version));
+        cache.close();
+
+        Assert.assertNull(cache.getValue("b"));
+    }
+
+    @Test
+    public void addValueNowReturnsActualResult() {
+        WriteBehindDecorator cache = newDecorator();
+        long version = cache.getVersion();
+        cache.removeKey("b");
+        Assert.assertFalse(cache.addValueNow("b", "stale", version));
+        Assert.assertNull(cache.getValue("b"));
+
+        cache.addValue("c", "queued");
+        Assert.assertTrue(cache.addValueNow("c", "loaded", cache.getVersion()));
+        Assert.assertEquals("loaded", cache.getValue("c"));
+        cache.close();
+        Assert.assertEquals("loaded", cache.getValue("c"));
+    }
+
+    @Test
+    public void writeAfterCloseApplied() {
+        WriteBehindDecorator cache = newDecorator();
+        cache.close();
+        cache.addValue("k", "after");
+
+        Assert.assertEquals("after", cache.getValue("k"));
+    }
+
+    @Test
+    public void writesRacingCloseKeepOrder() throws InterruptedException {
+        WriteBehindDecorator cache = newDecorator();
+        int count = 10000;
+        CountDownLatch started = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                cache.addValue("k", i);
+                if (i == count / 2) {
+                    started.countDown();
+                }
+            }
+        });
+        writer.start();
+        started.await();
+        cache.close();
+        writer.join();
+
+        Assert.assertEquals(count - 1, cache.getValue("k"));
+    }
+}
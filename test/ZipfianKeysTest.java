@@ -0,0 +1,54 @@
+package org.example.benchmark;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * 基准测试key序列测试
+ *
+ * @author maxueyan
+ * @date 2019/11/15
+ */
+public class ZipfianKeysTest {
+
+    private static int[] counts(long[] keys, int keySpace) {
+        int[] counts = new int[keySpace];
+        for (long key : keys) {
+            counts[(int) key]++;
+        }
+        return counts;
+    }
+
+    @Test
+    public void sequenceIsReproducibleAndInRange() {
+        long[] first = ZipfianKeys.generate(1000, 1d);
+        long[] second = ZipfianKeys.generate(1000, 1d);
+
+        Assert.assertEquals(ZipfianKeys.SEQUENCE_SIZE, first.length);
+        Assert.assertArrayEquals(first, second);
+        for (long key : first) {
+            Assert.assertTrue(key >= 0 && key < 1000);
+        }
+    }
+
+    @Test
+    public void skewedSequenceConcentratesOnHotKeys() {
+        int[] counts = counts(ZipfianKeys.generate(1000, 1d), 1000);
+        Arrays.sort(counts);
+
+        // 指数为1时最热key约占13%，均匀分布时每个key约占0.1%
+        Assert.assertTrue(counts[999] > ZipfianKeys.SEQUENCE_SIZE / 20);
+    }
+
+    @Test
+    public void zeroExponentIsRoughlyUniform() {
+        int[] counts = counts(ZipfianKeys.generate(64, 0d), 64);
+        int expected = ZipfianKeys.SEQUENCE_SIZE / 64;
+
+        for (int count : counts) {
+            Assert.assertTrue("count " + count, count > expected / 2 && count < expected * 2);
+        }
+    }
+}